@@ -0,0 +1,27 @@
+package com.github.aedge90.nmm;
+
+/**
+ * Tells all threads searching for a Strategy that they should stop. It is only a volatile flag, so the threads can
+ * poll it cheaply, which they do every few nodes together with the clock. A cancelled search still returns the best
+ * move found so far. Unlike interrupting threads, this also reaches the workers of the pool, which the thread
+ * that cancels does not know.
+ */
+
+final class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    //only for strategies that are used again after they were cancelled, like the ponderer
+    void reset() {
+        cancelled = false;
+    }
+
+}
@@ -0,0 +1,339 @@
+package com.github.aedge90.nmm;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The perfect results of the positions of one variant of the gameboard, as computed by the TablebaseGenerator.
+ * There is one table for every number of pieces of the player to move and of the other player and for every set count
+ * of both, with one byte per position (see PositionIndex): 0 if the position is a draw, otherwise the number of moves
+ * until the game is over plus one. Whether the player to move wins follows from the number of moves, as he wins after
+ * an odd and looses after an even number of them. The remis count is not part of the position.
+ * The tables of the moving phase (endgame tablebase) are kept in files of their own, so only the ones needed
+ * can be copied to the device. A solution of the whole game, including the set phase, is kept in one file
+ * with a header telling where each table starts. The files are mapped into memory when loaded, as the bigger ones
+ * have hundreds of megabytes. Probing a position only ranks it, so the search can probe every node.
+ */
+
+final class EndgameTablebase {
+
+    static final int UNKNOWN = -1;
+    static final int DRAW = 0;
+    //the longest distance a table can hold
+    static final int MAX_DISTANCE = 253;
+
+    private static final int MAX_PIECES = 12;
+    //"NMMT" and the version of the file format of a solution
+    private static final int MAGIC = 0x4e4d4d54;
+    private static final int VERSION = 1;
+
+    private final GameBoardTopology topology;
+    private final String name;
+    //by the numbers of pieces and set counts of both players, see key
+    private final ByteBuffer[] tables = new ByteBuffer[(MAX_PIECES + 1) * (MAX_PIECES + 1) * (MAX_PIECES + 1) * (MAX_PIECES + 1)];
+    private final PositionIndex[] indices = new PositionIndex[tables.length];
+
+    EndgameTablebase(GameBoard gameBoard) {
+        this.topology = gameBoard.getTopology();
+        this.name = gameBoard.getClass().getSimpleName().toLowerCase(Locale.US);
+    }
+
+    GameBoardTopology getTopology() {
+        return topology;
+    }
+
+    int nPoints() {
+        return topology.points.length;
+    }
+
+    private static int key(int nMover, int nOther, int moverSetCount, int otherSetCount) {
+        if (nMover > MAX_PIECES || nOther > MAX_PIECES || moverSetCount > MAX_PIECES || otherSetCount > MAX_PIECES) {
+            return -1;
+        }
+        return ((nMover * (MAX_PIECES + 1) + nOther) * (MAX_PIECES + 1) + moverSetCount) * (MAX_PIECES + 1) + otherSetCount;
+    }
+
+    boolean contains(int nMover, int nOther) {
+        return contains(nMover, nOther, 0, 0);
+    }
+
+    boolean contains(int nMover, int nOther, int moverSetCount, int otherSetCount) {
+        int key = key(nMover, nOther, moverSetCount, otherSetCount);
+        return key >= 0 && tables[key] != null;
+    }
+
+    PositionIndex index(int nMover, int nOther) {
+        return index(nMover, nOther, 0, 0);
+    }
+
+    PositionIndex index(int nMover, int nOther, int moverSetCount, int otherSetCount) {
+        return indices[key(nMover, nOther, moverSetCount, otherSetCount)];
+    }
+
+    void put(int nMover, int nOther, ByteBuffer table) {
+        put(nMover, nOther, 0, 0, table);
+    }
+
+    void put(int nMover, int nOther, int moverSetCount, int otherSetCount, ByteBuffer table) {
+        PositionIndex index = new PositionIndex(nPoints(), nMover, nOther);
+        if (table.capacity() != index.size) {
+            throw new IllegalArgumentException("The table of " + nMover + " against " + nOther + " pieces has "
+                    + table.capacity() + " instead of " + index.size + " positions");
+        }
+        int key = key(nMover, nOther, moverSetCount, otherSetCount);
+        indices[key] = index;
+        tables[key] = table;
+    }
+
+    //returns the result of the position with the pieces of the player to move and of the other player in the moving phase,
+    //or UNKNOWN if there is no table for their numbers of pieces
+    int probe(int moverPieces, int otherPieces) {
+        int key = key(Integer.bitCount(moverPieces), Integer.bitCount(otherPieces), 0, 0);
+        if (key < 0 || tables[key] == null) {
+            return UNKNOWN;
+        }
+        return tables[key].get(indices[key].rank(moverPieces, otherPieces)) & 0xFF;
+    }
+
+    //same as probe for any position, also if it is one of the set phase or the game is over
+    int probe(int moverPieces, int otherPieces, int moverSetCount, int otherSetCount) {
+        int nMover = Integer.bitCount(moverPieces);
+        int nOther = Integer.bitCount(otherPieces);
+        if (nMover < 3 && moverSetCount == 0) {
+            return result(false, 0);
+        }
+        if (nOther < 3 && otherSetCount == 0) {
+            //the other player set his last piece, but has only two. He looses as soon as he has to move,
+            //unless the player to move can not move either, then the game is already over
+            return canMove(moverPieces, otherPieces, moverSetCount) ? result(true, 1) : result(false, 0);
+        }
+        int key = key(nMover, nOther, moverSetCount, otherSetCount);
+        if (key < 0 || tables[key] == null) {
+            return UNKNOWN;
+        }
+        return tables[key].get(indices[key].rank(moverPieces, otherPieces)) & 0xFF;
+    }
+
+    private boolean canMove(int moverPieces, int otherPieces, int moverSetCount) {
+        if (moverSetCount > 0 || Integer.bitCount(moverPieces) == 3) {
+            return true;
+        }
+        int empty = topology.allPointsMask & ~(moverPieces | otherPieces);
+        for (; moverPieces != 0; moverPieces &= moverPieces - 1) {
+            if ((topology.neighborMasks[Integer.numberOfTrailingZeros(moverPieces)] & empty) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //the result of the position after the packed move, from the view of the player to move then
+    int probeMove(int moverPieces, int otherPieces, int moverSetCount, int otherSetCount, int move) {
+        int nextMover = otherPieces;
+        if (PackedMove.kill(move) != PackedMove.NONE) {
+            nextMover &= ~(1 << PackedMove.kill(move));
+        }
+        int nextOther = moverPieces | (1 << PackedMove.dest(move));
+        if (PackedMove.src(move) == PackedMove.NONE) {
+            moverSetCount--;
+        } else {
+            nextOther &= ~(1 << PackedMove.src(move));
+        }
+        return probe(nextMover, nextOther, otherSetCount, moverSetCount);
+    }
+
+    int get(int nMover, int nOther, int index) {
+        return get(nMover, nOther, 0, 0, index);
+    }
+
+    int get(int nMover, int nOther, int moverSetCount, int otherSetCount, int index) {
+        return tables[key(nMover, nOther, moverSetCount, otherSetCount)].get(index) & 0xFF;
+    }
+
+    static boolean isWin(int result) {
+        return result != DRAW && result % 2 == 0;
+    }
+
+    static boolean isLoss(int result) {
+        return result % 2 == 1;
+    }
+
+    //the number of moves until the game is over
+    static int distance(int result) {
+        return result - 1;
+    }
+
+    static int result(boolean win, int distance) {
+        if (distance > MAX_DISTANCE || (distance % 2 == 1) != win) {
+            throw new IllegalArgumentException("A " + (win ? "win" : "loss") + " can not be " + distance + " moves away");
+        }
+        return distance + 1;
+    }
+
+    File file(File dir, int nMover, int nOther) {
+        return new File(dir, name + "_" + nMover + "_" + nOther + ".tb");
+    }
+
+    //the file of a solution of the whole game
+    File solutionFile(File dir) {
+        return new File(dir, name + ".tb");
+    }
+
+    //writes every table of the moving phase to a file of its own
+    void write(File dir) throws IOException {
+        createDir(dir);
+        for (int nMover = 0; nMover <= MAX_PIECES; nMover++) {
+            for (int nOther = 0; nOther <= MAX_PIECES; nOther++) {
+                if (contains(nMover, nOther)) {
+                    FileOutputStream out = new FileOutputStream(file(dir, nMover, nOther));
+                    try {
+                        write(out, tables[key(nMover, nOther, 0, 0)]);
+                    } finally {
+                        out.close();
+                    }
+                }
+            }
+        }
+    }
+
+    //writes all tables to one file: the number of points and tables, then the numbers of pieces, set counts,
+    //offset in the file and size of every table, then the tables
+    void writeSolution(File dir) throws IOException {
+        createDir(dir);
+        int nTables = 0;
+        for (ByteBuffer table : tables) {
+            if (table != null) {
+                nTables++;
+            }
+        }
+        File file = solutionFile(dir);
+        File tmp = new File(dir, file.getName() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            DataOutputStream header = new DataOutputStream(out);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(nPoints());
+            header.writeInt(nTables);
+            long offset = 4 * 4 + nTables * (4 * 4 + 8 + 4);
+            for (int key = 0; key < tables.length; key++) {
+                if (tables[key] != null) {
+                    int otherSetCount = key % (MAX_PIECES + 1);
+                    int moverSetCount = key / (MAX_PIECES + 1) % (MAX_PIECES + 1);
+                    header.writeInt(indices[key].nMover);
+                    header.writeInt(indices[key].nOther);
+                    header.writeInt(moverSetCount);
+                    header.writeInt(otherSetCount);
+                    header.writeLong(offset);
+                    header.writeInt(indices[key].size);
+                    offset += indices[key].size;
+                }
+            }
+            header.flush();
+            for (ByteBuffer table : tables) {
+                if (table != null) {
+                    write(out, table);
+                }
+            }
+        } finally {
+            out.close();
+        }
+        rename(tmp, file);
+    }
+
+    //writes a solution packed with gzip, like the ones in the assets of the app, to dir, where load finds it
+    void unpackSolution(InputStream packed, File dir) throws IOException {
+        createDir(dir);
+        File file = solutionFile(dir);
+        File tmp = new File(dir, file.getName() + ".tmp");
+        InputStream in = new GZIPInputStream(packed);
+        FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            out.close();
+        }
+        rename(tmp, file);
+    }
+
+    //the app only finds the file once it is complete
+    private static void rename(File tmp, File file) throws IOException {
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not rename " + tmp + " to " + file);
+        }
+    }
+
+    static void createDir(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+    }
+
+    private static void write(FileOutputStream out, ByteBuffer table) throws IOException {
+        ByteBuffer buffer = table.duplicate();
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            out.getChannel().write(buffer);
+        }
+    }
+
+    //maps the solution or all tables of the variant of gameBoard found in dir into memory. Returns null if there are none
+    static EndgameTablebase load(File dir, GameBoard gameBoard) throws IOException {
+        EndgameTablebase tablebase = new EndgameTablebase(gameBoard);
+        boolean found = false;
+        File solution = tablebase.solutionFile(dir);
+        if (solution.isFile()) {
+            tablebase.loadSolution(solution);
+            found = true;
+        }
+        for (int nMover = 3; nMover <= MAX_PIECES; nMover++) {
+            for (int nOther = 3; nOther <= MAX_PIECES && nMover + nOther <= tablebase.nPoints(); nOther++) {
+                File file = tablebase.file(dir, nMover, nOther);
+                if (file.isFile() && !tablebase.contains(nMover, nOther)) {
+                    tablebase.put(nMover, nOther, map(file));
+                    found = true;
+                }
+            }
+        }
+        return found ? tablebase : null;
+    }
+
+    private void loadSolution(File file) throws IOException {
+        MappedByteBuffer solution = map(file);
+        if (solution.getInt(0) != MAGIC || solution.getInt(4) != VERSION || solution.getInt(8) != nPoints()) {
+            throw new IOException(file + " is no solution of " + name);
+        }
+        int nTables = solution.getInt(12);
+        for (int i = 0, position = 16; i < nTables; i++, position += 4 * 4 + 8 + 4) {
+            ByteBuffer table = solution.duplicate();
+            int offset = (int) solution.getLong(position + 16);
+            table.position(offset);
+            table.limit(offset + solution.getInt(position + 24));
+            put(solution.getInt(position), solution.getInt(position + 4), solution.getInt(position + 8),
+                    solution.getInt(position + 12), table.slice());
+        }
+    }
+
+    static MappedByteBuffer map(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            return in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+        } finally {
+            //the mapping stays valid after the file is closed
+            in.close();
+        }
+    }
+
+}
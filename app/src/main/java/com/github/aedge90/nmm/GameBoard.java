@@ -1,6 +1,7 @@
 package com.github.aedge90.nmm;
 
 import java.util.LinkedList;
+import java.util.Random;
 
 import android.support.annotation.VisibleForTesting;
 import android.util.Log;
@@ -11,24 +12,69 @@ public abstract class GameBoard {
     final static GameBoardPosition N = new GameBoardPosition(0,0);
     final static GameBoardPosition I = null;
 
-    GameBoardPosition[][] field;
-
-    private LinkedList<Position> allValidPositions = new LinkedList<Position>();
+    //indices of the bitboards of the two players
+    final static int WHITE = 0;
+    final static int BLACK = 1;
+
+    //the compiled layout of the variant, shared by all gameboards of that variant
+    private final GameBoardTopology topology;
+
+    //the game state: one mask per player color, the set counts of both players and the player that moves next
+    private final int[] pieces = new int[2];
+    private final int[] setCounts = new int[2];
+    private int sideToMove = WHITE;
+    //the number of pieces of each color in every mill of the gameboard, using two bits per mill
+    private final int[] millCounts = new int[2];
+    //zobrist key of the game state, updated together with it
+    private long key = 0;
+
+    //random numbers the zobrist key is made of. The seed is fixed, so a position has the same key in every run
+    private static final long[][] PIECE_KEYS = new long[2][32];
+    //set counts are hashed bit by bit, so any set count can be hashed with a small table
+    private static final long[][] SET_COUNT_KEYS = new long[2][32];
+    private static final long BLACK_TO_MOVE_KEY;
+    static {
+        Random random = new Random(0x4e4d4dL);
+        for(int color = 0; color < 2; color++) {
+            for (int i = 0; i < 32; i++) {
+                PIECE_KEYS[color][i] = random.nextLong();
+                SET_COUNT_KEYS[color][i] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE_KEY = random.nextLong();
+    }
 
     public static final int REMISMAX = 40;
 
+    //the size a buffer passed to possibleMoves must have. No position has more than 4 * 12 * 12 moves
+    //(four moves to every empty point, times every enemy piece to kill), but moving the kill moves
+    //in front of the others needs space for them twice
+    static final int MAX_MOVES = 2 * 4 * 12 * 12;
+
     private int remisCount = 0;
-    private int remisCountBeforeKill = 0;
+
+    //what is needed to reverse the last turns exactly: the remis count, set count of the moving player and player to move
+    //before the turn (three ints per turn) and the zobrist key before the turn. It is a ring, so turns can be
+    //executed without allocating anything, but only the last UNDO_CAPACITY turns can be reversed.
+    //It is only allocated with the first turn, and a copy starts without the turns of the original, as most copies
+    //are made to search from them and getCopy should stay cheap
+    static final int UNDO_CAPACITY = 512;
+    private int[] undoRecords;
+    private long[] undoKeys;
+    private int undoTop = 0;
+    private int nUndoRecords = 0;
 
     enum GameState {
         RUNNING, REMIS, WON_NO_MOVES, WON_KILLED_ALL
     }
 
-    GameBoard(){}
+    GameBoard(GameBoardTopology topology){
+        this.topology = topology;
+    }
 
     @VisibleForTesting
-    GameBoard(Options.Color[][] inputField) {
-        initField();
+    GameBoard(GameBoardTopology topology, Options.Color[][] inputField) {
+        this(topology);
         if (inputField.length != LENGTH || inputField[0].length != LENGTH){
             throw new IllegalArgumentException("Constructor called with wrong size of array");
         }
@@ -39,57 +85,201 @@ public abstract class GameBoard {
                 }
                 if(getGameBoardPosAt(x,y) != I){
                     if(inputField[y][x].equals(Options.Color.BLACK)) {
-                        getGameBoardPosAt(x,y).setColor(Options.Color.BLACK);
+                        addPiece(BLACK, topology.pointIndex[y][x]);
                     }else if (inputField[y][x].equals(Options.Color.WHITE)){
-                        getGameBoardPosAt(x,y).setColor(Options.Color.WHITE);
-                    }else if (inputField[y][x].equals(Options.Color.NOTHING)){
-                        getGameBoardPosAt(x,y).setColor(Options.Color.NOTHING);
+                        addPiece(WHITE, topology.pointIndex[y][x]);
                     }
                 }
             }
         }
     }
 
-    void initGameBoardPositionsFrom(GameBoard other){
-        //copy the field from other
-        for(int i = 0; i < LENGTH; i++){
-            for(int j = 0; j < LENGTH; j++){
-                if(other.field[i][j] != null) {
-                    field[i][j].setColor(other.field[i][j].getColor());
-                }
+    //copy constructor
+    GameBoard(GameBoard other){
+        this(other.topology);
+        pieces[WHITE] = other.pieces[WHITE];
+        pieces[BLACK] = other.pieces[BLACK];
+        setCounts[WHITE] = other.setCounts[WHITE];
+        setCounts[BLACK] = other.setCounts[BLACK];
+        sideToMove = other.sideToMove;
+        millCounts[WHITE] = other.millCounts[WHITE];
+        millCounts[BLACK] = other.millCounts[BLACK];
+        key = other.key;
+        remisCount = other.remisCount;
+    }
+
+    @VisibleForTesting
+    abstract GameBoard getCopy();
+
+    static int colorIndex(Options.Color color){
+        if(color.equals(Options.Color.WHITE)){
+            return WHITE;
+        }
+        return BLACK;
+    }
+
+    int indexOf(Position pos){
+        return topology.pointIndex[pos.getY()][pos.getX()];
+    }
+
+    private int maskOf(Options.Color color){
+        if(color.equals(Options.Color.WHITE)){
+            return pieces[WHITE];
+        }else if(color.equals(Options.Color.BLACK)){
+            return pieces[BLACK];
+        }else if(color.equals(Options.Color.NOTHING)){
+            return emptyMask();
+        }
+        return 0;
+    }
+
+    private int emptyMask(){
+        return topology.allPointsMask & ~(pieces[WHITE] | pieces[BLACK]);
+    }
+
+    private void addPiece(int color, int point){
+        pieces[color] |= 1 << point;
+        millCounts[color] += topology.millCountIncrements[point];
+        key ^= PIECE_KEYS[color][point];
+    }
+
+    private void removePiece(int color, int point){
+        pieces[color] &= ~(1 << point);
+        millCounts[color] -= topology.millCountIncrements[point];
+        key ^= PIECE_KEYS[color][point];
+    }
+
+    private void setSetCount(int color, int setCount){
+        key ^= setCountKey(color, setCounts[color]) ^ setCountKey(color, setCount);
+        setCounts[color] = setCount;
+    }
+
+    private void setSideToMove(int color){
+        if(color != sideToMove){
+            key ^= BLACK_TO_MOVE_KEY;
+            sideToMove = color;
+        }
+    }
+
+    private static long setCountKey(int color, int setCount){
+        long result = 0;
+        for(int bits = setCount; bits != 0; bits &= bits - 1){
+            result ^= SET_COUNT_KEYS[color][Integer.numberOfTrailingZeros(bits)];
+        }
+        return result;
+    }
+
+    //the zobrist key of the pieces on the board, the set counts of both players and the player to move.
+    //Equal game states have equal keys, no matter in which order the moves leading to them were made
+    long getKey(){
+        return key;
+    }
+
+    //computes the zobrist key from scratch, getKey() returns the same but is kept up to date on every move
+    @VisibleForTesting
+    long computeKey(){
+        return computeKey(setCounts, sideToMove);
+    }
+
+    private long computeKey(int[] setCounts, int sideToMove){
+        long result = 0;
+        for(int color = 0; color < 2; color++) {
+            for (int mask = pieces[color]; mask != 0; mask &= mask - 1) {
+                result ^= PIECE_KEYS[color][Integer.numberOfTrailingZeros(mask)];
             }
+            result ^= setCountKey(color, setCounts[color]);
+        }
+        if(sideToMove == BLACK){
+            result ^= BLACK_TO_MOVE_KEY;
         }
+        return result;
     }
 
-    void initGameBoardPositions(){
-        for(int i = 0; i < LENGTH; i++){
-            for(int j = 0; j < LENGTH; j++){
-                if(!(field[i][j] == I)) {
-                    field[i][j] = new GameBoardPosition(j,i);
-                    field[i][j].setColor(Options.Color.NOTHING);
-                    allValidPositions.add(field[i][j]);
-                }
+    //returns the game state with player to move. The set counts are taken from both players, as the gameboard
+    //only knows the set count of a player after it has made a move
+    GameBoardSnapshot snapshot(Player player){
+        int[] playerSetCounts = new int[2];
+        playerSetCounts[colorIndex(player.getColor())] = player.getSetCount();
+        playerSetCounts[1 - colorIndex(player.getColor())] = player.getOtherPlayer().getSetCount();
+        int side = colorIndex(player.getColor());
+        return new GameBoardSnapshot(topology, pieces, playerSetCounts, millCounts, side, remisCount, computeKey(playerSetCounts, side));
+    }
+
+    //sets the game state to the one of snapshot, which has to be one of a gameboard of the same variant.
+    //Turns done before can not be reversed afterwards
+    void restore(GameBoardSnapshot snapshot){
+        if(snapshot.getTopology() != topology){
+            throw new IllegalArgumentException("Trying to restore a snapshot of another variant of the gameboard");
+        }
+        for(int color = 0; color < 2; color++) {
+            pieces[color] = snapshot.getPieces(color);
+            setCounts[color] = snapshot.getSetCount(color);
+            millCounts[color] = snapshot.getMillCounts(color);
+        }
+        sideToMove = snapshot.getSideToMove();
+        remisCount = snapshot.getRemisCount();
+        key = snapshot.getKey();
+        undoTop = 0;
+        nUndoRecords = 0;
+    }
+
+    //sets the gameboard to the given pieces, set counts and player to move, as the generators of the endgame databases
+    //visit the positions in any order. Turns done before can not be reversed afterwards
+    void setPosition(int whitePieces, int blackPieces, int whiteSetCount, int blackSetCount, int sideToMove){
+        pieces[WHITE] = whitePieces;
+        pieces[BLACK] = blackPieces;
+        setCounts[WHITE] = whiteSetCount;
+        setCounts[BLACK] = blackSetCount;
+        for(int color = 0; color < 2; color++) {
+            millCounts[color] = 0;
+            for (int mask = pieces[color]; mask != 0; mask &= mask - 1) {
+                millCounts[color] += topology.millCountIncrements[Integer.numberOfTrailingZeros(mask)];
             }
         }
+        this.sideToMove = sideToMove;
+        remisCount = 0;
+        key = computeKey(setCounts, sideToMove);
+        undoTop = 0;
+        nUndoRecords = 0;
     }
 
-    public abstract void initField();
+    GameBoardTopology getTopology(){
+        return topology;
+    }
 
-    @VisibleForTesting
-    abstract GameBoard getCopy();
+    int getPieces(int color){
+        return pieces[color];
+    }
+
+    private int millCount(int color, int mill){
+        return (millCounts[color] >>> (2 * mill)) & 3;
+    }
+
+    int nPieces(int color){
+        return Integer.bitCount(pieces[color]);
+    }
+
+    int getSetCount(int color){
+        return setCounts[color];
+    }
+
+    Options.Color getSideToMove(){
+        if(sideToMove == WHITE){
+            return Options.Color.WHITE;
+        }
+        return Options.Color.BLACK;
+    }
 
     public LinkedList<Position> getPositions(Options.Color player) {
         LinkedList<Position> result = new LinkedList<Position>();
-        for(Position p : allValidPositions){
-            if(getGameBoardPosAt(p).getColor().equals(player)) {
-                result.add(p);
-            }
+        for(int mask = maskOf(player); mask != 0; mask &= mask - 1){
+            result.add(topology.points[Integer.numberOfTrailingZeros(mask)]);
         }
         return result;
     }
 
     GameBoardPosition getGameBoardPosAt(int x, int y){
-        return field[y][x];
+        return topology.field[y][x];
     }
 
     GameBoardPosition getGameBoardPosAt(Position pos) {
@@ -100,10 +290,16 @@ public abstract class GameBoard {
     }
 
     Options.Color getColorAt(int x, int y) {
-        if(field[y][x] == I){
+        if(topology.field[y][x] == I){
             return Options.Color.INVALID;
         }
-        return field[y][x].getColor();
+        int bit = 1 << topology.pointIndex[y][x];
+        if((pieces[WHITE] & bit) != 0){
+            return Options.Color.WHITE;
+        }else if((pieces[BLACK] & bit) != 0){
+            return Options.Color.BLACK;
+        }
+        return Options.Color.NOTHING;
     }
 
     Options.Color getColorAt(Position pos) {
@@ -112,30 +308,15 @@ public abstract class GameBoard {
         }
         return getColorAt(pos.getX(), pos.getY());
     }
-    
-    private void makeSetMove(Position dest, Options.Color color) {
-        field[dest.getY()][dest.getX()].setColor(color);
-    }
-
-    private void makeKillMove(Position dest) {
-        field[dest.getY()][dest.getX()].setColor(Options.Color.NOTHING);
-    }
-    
-    private void makeMove(Position src, Position dest, Options.Color color) {
-        field[src.getY()][src.getX()].setColor(Options.Color.NOTHING);
-        field[dest.getY()][dest.getX()].setColor(color);
-    }
 
     //this executes only the setting or moving phase of a player, regardless if a kill is contained in move
     //necessary to make is separate as the user can only add the kill after this move was done
     void executeSetOrMovePhase(Move move, Player player) {
-        remisCount++;
         if(player.getSetCount() > 0){
             if(!getColorAt(move.getDest()).equals(Options.Color.NOTHING)){
                 throw new IllegalArgumentException("Player " + player.getColor() + " is trying to set to an occupied field by: " + getColorAt(move.getDest()));
             }
-            makeSetMove(move.getDest(), player.getColor());
-            player.setSetCount(player.getSetCount() - 1);
+            executeSetOrMovePhase(indexOf(move.getDest()), PackedMove.NONE, player);
         }else{
             if(!getColorAt(move.getDest()).equals(Options.Color.NOTHING)){
                 throw new IllegalArgumentException("Player " + player.getColor() + " is trying to move to an occupied field by: " + getColorAt(move.getDest()));
@@ -143,77 +324,198 @@ public abstract class GameBoard {
             if(getColorAt(move.getSrc()).equals(Options.Color.NOTHING)){
                 throw new IllegalArgumentException("Player " + player.getColor() + " is trying to move from an empty field, which is: " + getColorAt(move.getSrc()));
             }
-            makeMove(move.getSrc(), move.getDest(), player.getColor());
+            executeSetOrMovePhase(indexOf(move.getDest()), indexOf(move.getSrc()), player);
+        }
+    }
+
+    private void executeSetOrMovePhase(int dest, int src, Player player) {
+        int color = colorIndex(player.getColor());
+        pushUndoRecord(color);
+        remisCount++;
+        if(player.getSetCount() > 0){
+            addPiece(color, dest);
+            player.setSetCount(player.getSetCount() - 1);
+        }else{
+            removePiece(color, src);
+            addPiece(color, dest);
         }
+        //the board keeps track of the set count of the player that just moved
+        setSetCount(color, player.getSetCount());
+        setSideToMove(1 - color);
     }
 
     //this executes a kill if the move contains one
     void executeKillPhase(Move move, Player player){
         if(move.getKill() != null){
-            remisCountBeforeKill = remisCount;
-            remisCount = 0;
             if(getColorAt(move.getKill()).equals(player.getColor())){
                 throw new IllegalArgumentException("Trying to kill own piece of color: " + player.getColor());
             }
             if(getColorAt(move.getKill()).equals(Options.Color.NOTHING)){
                 throw new IllegalArgumentException("Player " + player.getColor() + " is trying to kill an empty field");
             }
-            makeKillMove(move.getKill());
+            executeKillPhase(indexOf(move.getKill()), player);
         }
     }
 
+    private void executeKillPhase(int kill, Player player){
+        remisCount = 0;
+        removePiece(1 - colorIndex(player.getColor()), kill);
+    }
+
     //this executes the complete turn of a player, including setting or moving and killing
     void executeCompleteTurn(Move move, Player player){
         executeSetOrMovePhase(move, player);
         executeKillPhase(move, player);
     }
 
+    //same as executeCompleteTurn, but for a packed move. The move is not checked, as it is expected to be
+    //one of the moves generated by possibleMoves
+    void executeCompleteTurn(int move, Player player){
+        executeSetOrMovePhase(PackedMove.dest(move), PackedMove.src(move), player);
+        if(PackedMove.kill(move) != PackedMove.NONE){
+            executeKillPhase(PackedMove.kill(move), player);
+        }
+    }
+
     //undoes a complete turn of a player, including setting or moving and killing
     public void reverseCompleteTurn(Move move, Player player) {
-        remisCount--;
-        if(move.getSrc() == null && move.getDest() != null){
-            makeKillMove(move.getDest());
+        reverseCompleteTurn(toPackedMove(move), player);
+    }
+
+    void reverseCompleteTurn(int move, Player player) {
+        if(nUndoRecords == 0){
+            throw new IllegalStateException("Player " + player.getColor() + " is trying to reverse a turn that can not be reversed anymore");
+        }
+        int color = colorIndex(player.getColor());
+        removePiece(color, PackedMove.dest(move));
+        if(PackedMove.src(move) == PackedMove.NONE){
             player.setSetCount(player.getSetCount() + 1);
         }else{
-            makeMove(move.getDest(), move.getSrc(), player.getColor());
+            addPiece(color, PackedMove.src(move));
+        }
+        if(PackedMove.kill(move) != PackedMove.NONE){
+            addPiece(1 - color, PackedMove.kill(move));
+        }
+        popUndoRecord(color);
+    }
+
+    private void pushUndoRecord(int color){
+        if(undoRecords == null){
+            undoRecords = new int[3 * UNDO_CAPACITY];
+            undoKeys = new long[UNDO_CAPACITY];
+        }
+        undoRecords[3 * undoTop] = remisCount;
+        undoRecords[3 * undoTop + 1] = setCounts[color];
+        undoRecords[3 * undoTop + 2] = sideToMove;
+        undoKeys[undoTop] = key;
+        undoTop = (undoTop + 1) % UNDO_CAPACITY;
+        nUndoRecords = Math.min(nUndoRecords + 1, UNDO_CAPACITY);
+    }
+
+    private void popUndoRecord(int color){
+        undoTop = (undoTop + UNDO_CAPACITY - 1) % UNDO_CAPACITY;
+        nUndoRecords--;
+        remisCount = undoRecords[3 * undoTop];
+        setCounts[color] = undoRecords[3 * undoTop + 1];
+        sideToMove = undoRecords[3 * undoTop + 2];
+        key = undoKeys[undoTop];
+    }
+
+    int toPackedMove(Move move){
+        int src = PackedMove.NONE;
+        int kill = PackedMove.NONE;
+        if(move.getSrc() != null){
+            src = indexOf(move.getSrc());
         }
         if(move.getKill() != null){
-            remisCount = remisCountBeforeKill;
-            makeSetMove(move.getKill(), player.getOtherPlayer().getColor());
-        }    
+            kill = indexOf(move.getKill());
+        }
+        return PackedMove.of(indexOf(move.getDest()), src, kill);
+    }
+
+    Move toMove(int move){
+        Position src = null;
+        Position kill = null;
+        if(PackedMove.src(move) != PackedMove.NONE){
+            src = topology.points[PackedMove.src(move)];
+        }
+        if(PackedMove.kill(move) != PackedMove.NONE){
+            kill = topology.points[PackedMove.kill(move)];
+        }
+        return new Move(topology.points[PackedMove.dest(move)], src, kill);
     }
 
     // returns true if player has a piece in an enemy mill, which the enemy could close if it werent there
     boolean preventedMill (Position p, Player player){
-        Position[] preventedMill = getMill(p, player.getOtherPlayer().getColor());
-        if(preventedMill == null){
+        return preventedMill(indexOf(p), player);
+    }
+
+    boolean preventedMill (int point, Player player){
+        int enemy = 1 - colorIndex(player.getColor());
+        int mill = millOf(point, enemy, 0);
+        if(mill < 0){
             return false;
         }
         //check if enemy could actually move a piece into the mill in the next move --> prevented mill
-        if(player.getOtherPlayer().getSetCount() > 0 || getPositions(player.getOtherPlayer().getColor()).size() == 3){
+        if(player.getOtherPlayer().getSetCount() > 0 || nPieces(enemy) == 3){
             return true;
         }
-        GameBoardPosition[] neighbors = getGameBoardPosAt(p).getNeighbors();
-        for(GameBoardPosition neighbor : neighbors) {
-            //check if enemy could actually move a piece that is not part of the mill to form his mill
-            if(!preventedMill[0].equals(neighbor) && !preventedMill[1].equals(neighbor) && !preventedMill[2].equals(neighbor)) {
-                if (neighbor != null && getColorAt(neighbor).equals(player.getOtherPlayer().getColor())) {
-                    return true;
-                }
+        //check if enemy could actually move a piece that is not part of the mill to form his mill
+        return (topology.neighborMasks[point] & ~topology.millMasks[mill] & pieces[enemy]) != 0;
+    }
+
+    //returns true if player could close one of his mills with his next move
+    boolean canCloseMill (Player player){
+        int color = colorIndex(player.getColor());
+        int empty = emptyMask();
+        boolean canSetOrJump = player.getSetCount() > 0 || nPieces(color) == 3;
+        for(int mill = 0; mill < topology.mills.length; mill++){
+            int free = topology.millMasks[mill] & empty;
+            if(millCount(color, mill) != 2 || free == 0){
+                continue;
+            }
+            if(canSetOrJump){
+                return true;
+            }
+            //check if a piece that is not part of the mill can be moved into it
+            int point = Integer.numberOfTrailingZeros(free);
+            if((topology.neighborMasks[point] & ~topology.millMasks[mill] & pieces[color]) != 0){
+                return true;
             }
         }
         return false;
     }
 
+    //returns the first mill of point whose other two points are occupied by color, or -1 if there is none.
+    //pieces on the points in ignore are treated as if they were not there
+    private int millOf(int point, int color, int ignore){
+        int ignored = pieces[color] & (ignore | (1 << point));
+        for(int mill : topology.millsOfPoint[point]){
+            if(millCount(color, mill) - Integer.bitCount(topology.millMasks[mill] & ignored) == 2){
+                return mill;
+            }
+        }
+        return -1;
+    }
+
+    //returns the number of mills of point, of which one of the other two points is occupied by color and the other one is empty
+    private int nPotentialMills(int point, int color){
+        int bit = 1 << point;
+        int own = (pieces[color] & bit) != 0 ? 1 : 0;
+        int enemy = (pieces[1 - color] & bit) != 0 ? 1 : 0;
+        int n = 0;
+        for(int mill : topology.millsOfPoint[point]){
+            if(millCount(color, mill) - own == 1 && millCount(1 - color, mill) - enemy == 0){
+                n++;
+            }
+        }
+        return n;
+    }
+
     // returns true if two pieces of color player are found, that form a mill together with p
     // the color of p itself is NOT checked
     boolean isInMill(Position p, Options.Color player) {
-        if(null != getMill(p, player)){
-            //mill was found
-            return true;
-        }else{
-            return false;
-        }
+        return millOf(indexOf(p), colorIndex(player), 0) >= 0;
     }
 
     // returns 1 or 2 if one piece of color player is found and one that belongs to nobody
@@ -221,176 +523,110 @@ public abstract class GameBoard {
     // the color of p itself is NOT checked
     // 1 is returned if p is in one potential mill, 2 if it is in two.
     public int isInNPotentialMills(Position p, Options.Color player) {
-        Position[] potentialMill = getPotentialMill(p, player);
-        if(null == potentialMill){
-            return 0;
-        }
-        for(Position pos : potentialMill){
-            Options.Color colorBefore = getGameBoardPosAt(pos).getColor();
-            if(!pos.equals(p) && !colorBefore.equals(Options.Color.NOTHING)){
-                //remove the player piece of the found potential mill. If there is still one, then it has to be two
-                makeSetMove(pos, Options.Color.NOTHING);
-                potentialMill = getPotentialMill(p, player);
-                makeSetMove(pos, colorBefore);
-                if(null != potentialMill){
-                    return 2;
-                }
-            }
-        }
-        return 1;
-    }
-
-    Position[] getPotentialMill (Position p, Options.Color player) {
-        return getMillOrPartialMill(p, player, true);
+        return isInNPotentialMills(indexOf(p), player);
     }
 
-    Position[] getMill(Position p, Options.Color player) {
-        return getMillOrPartialMill(p, player, false);
+    int isInNPotentialMills(int point, Options.Color player) {
+        return Math.min(nPotentialMills(point, colorIndex(player)), 2);
     }
 
     //if two pieces of color player are found, that form a mill together with position
     //an array containing the two pieces and position is returned, else null is returned
-    Position[] getMillOrPartialMill(Position p, Options.Color player, boolean partial) {
-        Position[] mill;
-        GameBoardPosition checkPos = getGameBoardPosAt(p);
-        mill = getMillWithPosInMiddle(checkPos, player, partial);
-        if(mill != null){
-            return mill;
-        }
-        mill = getMillWithPosAtCorner(checkPos, player, partial);
-        if(mill != null){
-            return mill;
-        }
-        return null;
-    }
-
-    protected Position[] getMillWithPosInMiddle(GameBoardPosition middlePos, Options.Color player, boolean partial){
-        GameBoardPosition[] neighbors = middlePos.getNeighbors();
-        for(GameBoardPosition neighbor : neighbors) {
-            if (neighbor != null && middlePos.getOpposite(neighbor) != null) {
-                if (belongTo(neighbor, middlePos.getOpposite(neighbor), player, partial)) {
-                    return new Position[]{neighbor, middlePos, middlePos.getOpposite(neighbor)};
+    Position[] getMill(Position p, Options.Color player) {
+        int point = indexOf(p);
+        int mill = millOf(point, colorIndex(player), 0);
+        if(mill < 0){
+            return null;
+        }
+        int[] points = topology.mills[mill];
+        return new Position[]{topology.points[points[0]], topology.points[points[1]], topology.points[points[2]]};
+    }
+
+    //where the next generated move is written to. Moves without a kill are added at the front of the buffer,
+    //kill moves at its end going down, so their order is reversed as if they were added first to a list
+    private int nonKillMovesEnd;
+    private int killMovesStart;
+
+    private void addnonJumpMoves(int[] moves, int color){
+        int empty = emptyMask();
+        for (int own = pieces[color]; own != 0; own &= own - 1) {
+            int src = Integer.numberOfTrailingZeros(own);
+            for (int dest : topology.neighbors[src]) {
+                if ((empty & (1 << dest)) != 0) {
+                    addpossibleKillstoMove(moves, PackedMove.of(dest, src, PackedMove.NONE), color);
                 }
             }
         }
-        return null;
     }
 
-    protected Position[] getMillWithPosAtCorner(GameBoardPosition cornerPos, Options.Color player, boolean partial){
-        GameBoardPosition[] neighbors = cornerPos.getNeighbors();
-        for(GameBoardPosition neighbor : neighbors) {
-            if (neighbor != null && neighbor.getOpposite(cornerPos) != null) {
-                if (belongTo(neighbor.getOpposite(cornerPos), neighbor, player, partial)) {
-                    return new Position[]{neighbor.getOpposite(cornerPos), neighbor, cornerPos};
-                }
+    private void addJumpMoves(int[] moves, int color){
+        int own = pieces[color];
+        for (int empty = emptyMask(); empty != 0; empty &= empty - 1) {
+            int dest = Integer.numberOfTrailingZeros(empty);
+            for (int src = own; src != 0; src &= src - 1) {
+                addpossibleKillstoMove(moves, PackedMove.of(dest, Integer.numberOfTrailingZeros(src), PackedMove.NONE), color);
             }
         }
-        return null;
-    }
-
-
-    private boolean belongTo(GameBoardPosition p1, GameBoardPosition p2, Options.Color player, boolean partial){
-        if(partial){
-            return oneBelongsToPlayerOtherToNobody(p1, p2, player);
-        }else{
-            return bothBelongTo(p1, p2, player);
-        }
-    }
-
-    private boolean bothBelongTo(GameBoardPosition p1, GameBoardPosition p2, Options.Color player){
-        if(p1.getColor().equals(player) && p2.getColor().equals(player)){
-            return true;
-        }else{
-            return false;
-        }
     }
 
-    private boolean oneBelongsToPlayerOtherToNobody(GameBoardPosition p1, GameBoardPosition p2, Options.Color player){
-        if(p1.getColor().equals(player) && p2.getColor().equals(Options.Color.NOTHING)){
-            return true;
-        }else if(p2.getColor().equals(player) && p1.getColor().equals(Options.Color.NOTHING)){
-            return true;
-        }else{
-            return false;
+    private void addSetMoves(int[] moves, int color){
+        for (int empty = emptyMask(); empty != 0; empty &= empty - 1) {
+            addpossibleKillstoMove(moves, PackedMove.of(Integer.numberOfTrailingZeros(empty), PackedMove.NONE, PackedMove.NONE), color);
         }
     }
 
-    private void addnonJumpMoves(LinkedList<Move> moves, Player player){
-        for (Position p : getPositions(player.getColor())) {
-            if (moveUp(p) != null) {
-                addpossibleKillstoMove(moves, moveUp(p), player);
-            }
-            if (moveDown(p) != null) {
-                addpossibleKillstoMove(moves, moveDown(p), player);
-            }
-            if (moveRight(p) != null) {
-                addpossibleKillstoMove(moves, moveRight(p), player);
-            }
-            if (moveLeft(p) != null) {
-                addpossibleKillstoMove(moves, moveLeft(p), player);
-            }
+    @VisibleForTesting
+    void addpossibleKillstoMove(LinkedList<Move> possibleMovessoFar, Move move, Player player){
+        int[] moves = new int[MAX_MOVES];
+        nonKillMovesEnd = 0;
+        killMovesStart = moves.length;
+        addpossibleKillstoMove(moves, toPackedMove(move), colorIndex(player.getColor()));
+        for(int i = moves.length - 1; i >= killMovesStart; i--){
+            possibleMovessoFar.addFirst(toMove(moves[i]));
         }
-    }
-
-    private void addJumpMoves(LinkedList<Move> moves, Player player){
-        for (Position all : getAllValidPositions()) {
-            if (getColorAt(all).equals(Options.Color.NOTHING)) {
-                for (Position own: getPositions(player.getColor())) {
-                    addpossibleKillstoMove(moves, new Move(all, own, null), player);
-                }
-            }
+        for(int i = 0; i < nonKillMovesEnd; i++){
+            possibleMovessoFar.add(toMove(moves[i]));
         }
     }
 
-    private void addSetMoves(LinkedList<Move> moves, Player player){
-        for (Position all : getAllValidPositions()) {
-            if (getColorAt(all).equals(Options.Color.NOTHING)) {
-                addpossibleKillstoMove(moves, new Move(all, null, null), player);
-            }
+    private void addpossibleKillstoMove(int[] moves, int move, int color){
+        //the piece that is moved must not be counted, so there are no mills wrongly detected
+        //when move contains a source and destination that is inside the same mill
+        int src = 0;
+        if(PackedMove.src(move) != PackedMove.NONE){
+            src = 1 << PackedMove.src(move);
         }
-    }
-
-    @VisibleForTesting
-    void addpossibleKillstoMove(LinkedList<Move> possibleMovessoFar, Move move, Player player){
-        boolean inMill = false;
-        //this is important so there are no mills wrongly detected when move contains a source and
-        //destination that is inside the same mill
-        executeSetOrMovePhase(move, player);
-        inMill = isInMill(move.getDest(), player.getColor());
-        reverseCompleteTurn(move, player);
         //player has a mill after doing this move --> he can kill a piece of the opponent
-        if(inMill){
+        if(millOf(PackedMove.dest(move), color, src) >= 0){
+            int enemy = pieces[1 - color];
             int added = 0;
-            for (Position kill : getPositions(player.getOtherPlayer().getColor())) {
-                if(!isInMill(kill, player.getOtherPlayer().getColor())){
-                    Move killMove = new Move(move.getDest(), move.getSrc(), kill);
-                    // using add first is important, so the kill moves will be at the beginning of the list
+            for (int kill = enemy; kill != 0; kill &= kill - 1) {
+                int p = Integer.numberOfTrailingZeros(kill);
+                if(millOf(p, 1 - color, 0) < 0){
+                    // the kill moves will be at the beginning of the list
                     // by that its more likely that the alpha beta algorithms does more cutoffs
-                    possibleMovessoFar.addFirst(killMove);
+                    moves[--killMovesStart] = PackedMove.withKill(move, p);
                     added++;
                 }
             }
             //no pieces to kill because all are in a mill --> do it again but now add all pieces
             //as you are allowed to kill if all pieces are part of a mill
             if(added == 0){
-                for (Position kill2 : getPositions(player.getOtherPlayer().getColor())) {
-                    Move killMove = new Move(move.getDest(), move.getSrc(), kill2);
-                    possibleMovessoFar.addFirst(killMove);
+                for (int kill = enemy; kill != 0; kill &= kill - 1) {
+                    moves[--killMovesStart] = PackedMove.withKill(move, Integer.numberOfTrailingZeros(kill));
                 }
             }
         }else{
-            possibleMovessoFar.add(move);
+            moves[nonKillMovesEnd++] = move;
         }
     }
 
     int nEmptyNeighbors(final Position pos){
-        int nEmptyNeighbors = 0;
-        for(GameBoardPosition neighbor : getGameBoardPosAt(pos).getNeighbors()){
-            if(neighbor != null && neighbor.getColor().equals(Options.Color.NOTHING)){
-                nEmptyNeighbors++;
-            }
-        }
-        return nEmptyNeighbors;
+        return nEmptyNeighbors(indexOf(pos));
+    }
+
+    int nEmptyNeighbors(int point){
+        return Integer.bitCount(topology.neighborMasks[point] & emptyMask());
     }
 
     //is any move possible?
@@ -398,57 +634,68 @@ public abstract class GameBoard {
         if(player.getSetCount() > 0){
             return true;
         }
+        int own = pieces[colorIndex(player.getColor())];
+        int nPieces = Integer.bitCount(own);
         // return false if the player has lost, otherwise it breaks the evaluation
-        LinkedList<Position> positionsOfPlayer = getPositions(player.getColor());
-        if(positionsOfPlayer.size() < 3 && player.getSetCount() <= 0){
+        if(nPieces < 3){
             return false;
         }
-        boolean jump = false;
-        if (positionsOfPlayer.size() == 3){
-            jump = true;
-        }
-        if (!jump){
-            for (Position p : positionsOfPlayer) {
-                if (moveUp(p) != null)
-                    return true;
-                if (moveDown(p) != null)
-                    return true;
-                if (moveRight(p) != null)
-                    return true;
-                if (moveLeft(p) != null)
-                    return true;
-            }
-        } else {
+        if (nPieces == 3){
+            //jump
             return true;
         }
+        int empty = emptyMask();
+        for (; own != 0; own &= own - 1) {
+            if((topology.neighborMasks[Integer.numberOfTrailingZeros(own)] & empty) != 0){
+                return true;
+            }
+        }
         return false;
     }
 
     //returns a list of moves that the player is able to do
     LinkedList<Move> possibleMoves(Player player) {
+        int[] moves = new int[MAX_MOVES];
+        int n = possibleMoves(player, moves);
         LinkedList<Move> poss = new LinkedList<Move>();
-        int nPositions = getPositions(player.getColor()).size();
+        for(int i = 0; i < n; i++){
+            poss.add(toMove(moves[i]));
+        }
+        return poss;
+    }
+
+    //writes the moves that the player is able to do as packed moves to the beginning of moves, which must have a length
+    //of at least MAX_MOVES, and returns their number. The order is the same as the one of the list returned by possibleMoves
+    int possibleMoves(Player player, int[] moves) {
+        int color = colorIndex(player.getColor());
+        int nPositions = nPieces(color);
         //do not compute possible moves if the player has lost, otherwise it breaks the evaluation
         //as a state AFTER loosing would be evaluated instead of the final state after the final kill
         if(nPositions < 3 && player.getSetCount() <= 0){
-            return poss;
+            return 0;
         }
+        nonKillMovesEnd = 0;
+        killMovesStart = MAX_MOVES;
         if(player.getSetCount() > 0){
-            addSetMoves(poss, player);
+            addSetMoves(moves, color);
         }else{
             boolean jump = false;
             if (nPositions <= 3){
                 jump = true;
             }
             if (!jump) {
-                addnonJumpMoves(poss, player);
+                addnonJumpMoves(moves, color);
             } else {
-                addJumpMoves(poss, player);
+                addJumpMoves(moves, color);
             }
         }
-        return poss;
+        //move the kill moves in front of the others
+        int nKillMoves = MAX_MOVES - killMovesStart;
+        System.arraycopy(moves, 0, moves, nKillMoves, nonKillMovesEnd);
+        System.arraycopy(moves, killMovesStart, moves, 0, nKillMoves);
+        return nKillMoves + nonKillMovesEnd;
     }
-    
+
     //is move dest possible?
     boolean movePossible(Position src, Position dest){
         if(!getColorAt(dest).equals(Options.Color.NOTHING)){
@@ -457,62 +704,13 @@ public abstract class GameBoard {
         if(getPositions(getColorAt(src)).size() == 3){
             return true;
         }
-
-        if(moveUp(src) != null && dest.equals(moveUp(src).getDest())){
-            return true;
-        }
-        if(moveDown(src) != null && dest.equals(moveDown(src).getDest())) {
-            return true;
-        }
-        if(moveRight(src) != null && dest.equals(moveRight(src).getDest())) {
-            return true;
-        }
-        if(moveLeft(src) != null && dest.equals(moveLeft(src).getDest())) {
-            return true;
-        }
-        return false;
-    }
-
-    private Move moveUp(Position p) {
-        Position dest = getGameBoardPosAt(p).getUp();
-        if(dest != null && getColorAt(dest).equals(Options.Color.NOTHING)){
-            return new Move(dest, p, null);
-        }
-        return null;
-    }
-
-    private Move moveDown(Position p) {
-        Position dest = getGameBoardPosAt(p).getDown();
-        if(dest != null && getColorAt(dest).equals(Options.Color.NOTHING)){
-            return new Move(dest, p, null);
-        }
-        return null;
-    }
-
-    private Move moveLeft(Position p) {
-        Position dest = getGameBoardPosAt(p).getLeft();
-        if(dest != null && getColorAt(dest).equals(Options.Color.NOTHING)){
-            return new Move(dest, p, null);
-        }
-        return null;
-    }
-
-    private Move moveRight(Position p) {
-        Position dest = getGameBoardPosAt(p).getRight();
-        if(dest != null && getColorAt(dest).equals(Options.Color.NOTHING)){
-            return new Move(dest, p, null);
-        }
-        return null;
-    }
-
-    private LinkedList<Position> getAllValidPositions() {
-        return allValidPositions;
+        return (topology.neighborMasks[indexOf(src)] & (1 << indexOf(dest))) != 0;
     }
 
     GameState getState(Player player) {
 
         //only the other player can have lost as its impossible for maxPlayer to commit suicide
-        if ((getPositions(player.getOtherPlayer().getColor()).size() < 3 && player.getOtherPlayer().getSetCount() <= 0)) {
+        if ((nPieces(1 - colorIndex(player.getColor())) < 3 && player.getOtherPlayer().getSetCount() <= 0)) {
             return GameState.WON_KILLED_ALL;
         }
         // its important that this is second, as this is also false if only 2 pieces are left.
@@ -7,7 +7,10 @@ public class GameBoardPosition extends Position {
     private GameBoardPosition right;
     private GameBoardPosition up;
     private GameBoardPosition down;
-    private Options.Color color;
+    private GameBoardPosition[] neighbors;
+
+    //index of this position in the bitboards, set when the gameboard is compiled
+    int index = -1;
 
     GameBoardPosition(int x, int y) {
         super(x, y);
@@ -29,27 +32,29 @@ public class GameBoardPosition extends Position {
         return down;
     }
 
+    //the returned array is shared, it must not be changed
     public GameBoardPosition[] getNeighbors () {
-        return new GameBoardPosition[]{left,right,up,down};
+        return neighbors;
+    }
+
+    //called once all connections are made, as positions are shared by all gameboards of one variant
+    void cacheNeighbors() {
+        neighbors = new GameBoardPosition[]{left,right,up,down};
     }
 
     public GameBoardPosition getOpposite(GameBoardPosition pos){
-        if(pos.equals(left)){
+        if(pos == left){
             return right;
-        }else if(pos.equals(right)){
+        }else if(pos == right){
             return left;
-        }else if(pos.equals(up)){
+        }else if(pos == up){
             return down;
-        }else if(pos.equals(down)){
+        }else if(pos == down){
             return up;
         }
         return null;
     }
 
-    public void setColor(Options.Color color) {
-        this.color = color;
-    }
-
     public void connectRight(GameBoardPosition right) {
         this.right = right;
         right.left = this;
@@ -60,8 +65,4 @@ public class GameBoardPosition extends Position {
         down.up = this;
     }
 
-    public Options.Color getColor() {
-        return this.color;
-    }
-
 }
@@ -0,0 +1,57 @@
+package com.github.aedge90.nmm;
+
+/**
+ * An immutable copy of the game state of a GameBoard: the pieces of both colors, the set counts of both players,
+ * the player to move, the remis count and the zobrist key. It is only a few ints, so it can be shared by reference
+ * between threads, and every thread can restore its own GameBoard from it without copying anything else.
+ */
+
+final class GameBoardSnapshot {
+
+    private final GameBoardTopology topology;
+    private final int[] pieces;
+    private final int[] setCounts;
+    private final int[] millCounts;
+    private final int sideToMove;
+    private final int remisCount;
+    private final long key;
+
+    GameBoardSnapshot(GameBoardTopology topology, int[] pieces, int[] setCounts, int[] millCounts, int sideToMove, int remisCount, long key) {
+        this.topology = topology;
+        this.pieces = new int[]{pieces[GameBoard.WHITE], pieces[GameBoard.BLACK]};
+        this.setCounts = new int[]{setCounts[GameBoard.WHITE], setCounts[GameBoard.BLACK]};
+        this.millCounts = new int[]{millCounts[GameBoard.WHITE], millCounts[GameBoard.BLACK]};
+        this.sideToMove = sideToMove;
+        this.remisCount = remisCount;
+        this.key = key;
+    }
+
+    GameBoardTopology getTopology() {
+        return topology;
+    }
+
+    int getPieces(int color) {
+        return pieces[color];
+    }
+
+    int getSetCount(int color) {
+        return setCounts[color];
+    }
+
+    int getMillCounts(int color) {
+        return millCounts[color];
+    }
+
+    int getSideToMove() {
+        return sideToMove;
+    }
+
+    int getRemisCount() {
+        return remisCount;
+    }
+
+    long getKey() {
+        return key;
+    }
+
+}
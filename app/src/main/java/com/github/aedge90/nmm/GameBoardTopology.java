@@ -0,0 +1,140 @@
+package com.github.aedge90.nmm;
+
+import java.util.LinkedList;
+
+/**
+ * The compiled layout of one variant of the gameboard. It is built once per variant from a graph of
+ * GameBoardPositions and shared by all GameBoards of that variant, so it must never be changed afterwards.
+ * Every valid position gets an index in row major order. Bit i of a mask stands for the position with index i
+ */
+
+class GameBoardTopology {
+
+    final GameBoardPosition[][] field;
+    final GameBoardPosition[] points;
+    final int[][] pointIndex;
+    final int allPointsMask;
+
+    //neighbors of every point in the order up, down, right, left, which is the order moves are generated in
+    final int[][] neighbors;
+    final int[] neighborMasks;
+
+    //all mills of the gameboard, given as the three indices of its points
+    final int[][] mills;
+    final int[] millMasks;
+    //the mills every point is part of. The order is the same in which the mills were searched
+    //when the board was a graph of positions
+    final int[][] millsOfPoint;
+    //what has to be added to the packed mill counters of a color when a piece is placed on a point.
+    //Every mill uses two bits, which is enough as there are at most 16 mills
+    final int[] millCountIncrements;
+
+    GameBoardTopology(GameBoardPosition[][] field) {
+        this.field = field;
+
+        pointIndex = new int[GameBoard.LENGTH][GameBoard.LENGTH];
+        LinkedList<GameBoardPosition> validPositions = new LinkedList<GameBoardPosition>();
+        for(int y = 0; y < GameBoard.LENGTH; y++){
+            for(int x = 0; x < GameBoard.LENGTH; x++){
+                pointIndex[y][x] = -1;
+                if(field[y][x] != null) {
+                    field[y][x].index = validPositions.size();
+                    pointIndex[y][x] = validPositions.size();
+                    validPositions.add(field[y][x]);
+                }
+            }
+        }
+        points = validPositions.toArray(new GameBoardPosition[validPositions.size()]);
+        allPointsMask = (1 << points.length) - 1;
+
+        for(GameBoardPosition p : points){
+            p.cacheNeighbors();
+        }
+
+        neighbors = new int[points.length][];
+        neighborMasks = new int[points.length];
+        LinkedList<int[]> allMills = new LinkedList<int[]>();
+        int[][] millIds = new int[points.length][];
+        for(int i = 0; i < points.length; i++) {
+            GameBoardPosition p = points[i];
+            LinkedList<Integer> adjacent = new LinkedList<Integer>();
+            for(GameBoardPosition neighbor : new GameBoardPosition[]{p.getUp(), p.getDown(), p.getRight(), p.getLeft()}){
+                if(neighbor != null) {
+                    adjacent.add(neighbor.index);
+                    neighborMasks[i] |= 1 << neighbor.index;
+                }
+            }
+            neighbors[i] = new int[adjacent.size()];
+            for(int j = 0; j < neighbors[i].length; j++){
+                neighbors[i][j] = adjacent.get(j);
+            }
+
+            LinkedList<Integer> ids = new LinkedList<Integer>();
+            //mills with p in the middle
+            for(GameBoardPosition neighbor : p.getNeighbors()) {
+                if (neighbor != null && p.getOpposite(neighbor) != null && isMill(neighbor, p, p.getOpposite(neighbor))) {
+                    addMill(allMills, ids, neighbor, p, p.getOpposite(neighbor));
+                }
+            }
+            //mills with p at a corner
+            for(GameBoardPosition neighbor : p.getNeighbors()) {
+                if (neighbor != null && neighbor.getOpposite(p) != null && isMill(p, neighbor, neighbor.getOpposite(p))) {
+                    addMill(allMills, ids, neighbor.getOpposite(p), neighbor, p);
+                }
+            }
+            millIds[i] = new int[ids.size()];
+            for(int j = 0; j < ids.size(); j++){
+                millIds[i][j] = ids.get(j);
+            }
+        }
+        millsOfPoint = millIds;
+        mills = allMills.toArray(new int[allMills.size()][]);
+        if(mills.length > 16){
+            throw new IllegalArgumentException("A gameboard may not have more than 16 mills");
+        }
+        millMasks = new int[mills.length];
+        millCountIncrements = new int[points.length];
+        for(int i = 0; i < mills.length; i++){
+            for(int point : mills[i]){
+                millMasks[i] |= 1 << point;
+                millCountIncrements[point] += 1 << (2 * i);
+            }
+        }
+    }
+
+    private static void addMill(LinkedList<int[]> allMills, LinkedList<Integer> ids, GameBoardPosition p1, GameBoardPosition p2, GameBoardPosition p3){
+        int mask = (1 << p1.index) | (1 << p2.index) | (1 << p3.index);
+        int id = 0;
+        for(int[] mill : allMills){
+            if(((1 << mill[0]) | (1 << mill[1]) | (1 << mill[2])) == mask){
+                break;
+            }
+            id++;
+        }
+        if(id == allMills.size()){
+            allMills.add(new int[]{p1.index, p2.index, p3.index});
+        }
+        //the same mill is found from both of its ends
+        if(!ids.contains(id)) {
+            ids.add(id);
+        }
+    }
+
+    //three connected positions in one line form a mill, unless a variant says otherwise
+    boolean isMill(Position first, Position middle, Position last){
+        return true;
+    }
+
+    //creates the positions of a field which contains N for every valid and I for every invalid position
+    static GameBoardPosition[][] createPositions(GameBoardPosition[][] field){
+        for(int y = 0; y < GameBoard.LENGTH; y++){
+            for(int x = 0; x < GameBoard.LENGTH; x++){
+                if(field[y][x] != GameBoard.I) {
+                    field[y][x] = new GameBoardPosition(x,y);
+                }
+            }
+        }
+        return field;
+    }
+
+}
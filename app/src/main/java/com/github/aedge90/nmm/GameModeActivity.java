@@ -6,6 +6,7 @@ import android.widget.Toast;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.DialogInterface;
+import android.content.res.AssetManager;
 import android.graphics.Point;
 import android.os.Bundle;
 import android.util.Log;
@@ -17,7 +18,15 @@ import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -33,6 +42,10 @@ public class GameModeActivity extends FragmentActivity {
     private boolean mPaused;
 
     volatile Move currMove;
+    //set while a solution is unpacked in the background, so it is not unpacked twice at the same time
+    private static final AtomicBoolean unpackingSolution = new AtomicBoolean();
+    //the bot that ponders while the human thinks about his move
+    volatile Strategy ponderingBrain;
     Thread gameThread;
     Options options;
     GridLayout fieldLayout;
@@ -55,6 +68,8 @@ public class GameModeActivity extends FragmentActivity {
     Player currPlayer;
     Player playerBlack;
     Player playerWhite;
+    volatile Strategy playerBlackBrain;
+    volatile Strategy playerWhiteBrain;
 
     private void setDefaultUncaughtExceptionHandler() {
         try {
@@ -168,14 +183,21 @@ public class GameModeActivity extends FragmentActivity {
             @Override
             public void run(){
 
-                Strategy playerBlackBrain = null;
-                Strategy playerWhiteBrain = null;
                 if(playerWhite.getDifficulty() != null) {
                     playerWhiteBrain = new Strategy(field, playerWhite, progressUpdater);
                 }
                 if(playerBlack.getDifficulty() != null) {
                     playerBlackBrain = new Strategy(field, playerBlack, progressUpdater);
                 }
+                if(playerWhite.getDifficulty() == Options.Difficulties.HARDEST
+                        || playerBlack.getDifficulty() == Options.Difficulties.HARDEST) {
+                    EndgameTablebase tablebase = loadTablebase();
+                    if (tablebase != null) {
+                        setTablebase(tablebase);
+                    } else {
+                        unpackSolutionInBackground();
+                    }
+                }
 
                 if(options.whoStarts.equals(playerWhite.getColor())){
                     currPlayer = playerWhite;
@@ -187,7 +209,11 @@ public class GameModeActivity extends FragmentActivity {
                     while(true){
 
                         if(currPlayer.getDifficulty() == null) {
-                            humanTurn(currPlayer);
+                            if(currPlayer.getColor().equals(Options.Color.WHITE)) {
+                                humanTurn(currPlayer, playerBlackBrain);
+                            }else{
+                                humanTurn(currPlayer, playerWhiteBrain);
+                            }
                         }else{
                             if(currPlayer.getColor().equals(Options.Color.WHITE)) {
                                 botTurn(currPlayer, playerWhiteBrain);
@@ -229,6 +255,15 @@ public class GameModeActivity extends FragmentActivity {
 
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        //stops the searches of the bots that may still be running, as they are not needed any more
+        if (isFinishing()) {
+            SearchWorkerPool.shutdown();
+        }
+    }
+
     @Override
     public void onPause() {
         super.onPause();
@@ -272,6 +307,84 @@ public class GameModeActivity extends FragmentActivity {
         }
     }
 
+    //the endgame tablebase or solution of the variant, if its tables were copied into
+    //or unpacked into the files dir (see TablebaseGenerator)
+    private EndgameTablebase loadTablebase(){
+        try {
+            return EndgameTablebase.load(new File(getFilesDir(), "tablebases"), field);
+        } catch (IOException e) {
+            Log.e("GameModeActivity", "Could not load the endgame tablebase: " + e);
+            return null;
+        }
+    }
+
+    //only the hardest bots play perfectly, so the other difficulties can still be beaten
+    private void setTablebase(EndgameTablebase tablebase){
+        if(playerWhiteBrain != null && playerWhite.getDifficulty() == Options.Difficulties.HARDEST) {
+            playerWhiteBrain.setTablebase(tablebase);
+        }
+        if(playerBlackBrain != null && playerBlack.getDifficulty() == Options.Difficulties.HARDEST) {
+            playerBlackBrain.setTablebase(tablebase);
+        }
+    }
+
+    //the solutions of the small variants are shipped packed in the assets. A solution is unpacked into the files dir
+    //the first time it is needed, while the bots search as usual, and then only mapped into memory like other tables
+    private void unpackSolutionInBackground(){
+        String asset = new EndgameTablebase(field).solutionFile(new File("tablebases")).getPath() + ".gz";
+        try {
+            if(!Arrays.asList(getAssets().list("tablebases")).contains(new File(asset).getName())) {
+                return;
+            }
+        } catch (IOException e) {
+            Log.e("GameModeActivity", "Could not list the assets: " + e);
+            return;
+        }
+        if(!unpackingSolution.compareAndSet(false, true)) {
+            return;
+        }
+        SearchWorkerPool.tablebaseExecutor().execute(new SolutionUnpacker(this, asset));
+    }
+
+    //static and only with a weak reference to the activity, so it does not keep the activity alive if it is finished
+    //or recreated, e.g. when the screen is rotated, before the solution is unpacked
+    private static final class SolutionUnpacker implements Runnable {
+
+        private final WeakReference<GameModeActivity> activity;
+        private final AssetManager assets;
+        private final File dir;
+        private final GameBoard gameBoard;
+        private final String asset;
+
+        SolutionUnpacker(GameModeActivity activity, String asset) {
+            this.activity = new WeakReference<>(activity);
+            this.assets = activity.getApplicationContext().getAssets();
+            this.dir = new File(activity.getFilesDir(), "tablebases");
+            this.gameBoard = activity.field.getCopy();
+            this.asset = asset;
+        }
+
+        @Override
+        public void run() {
+            try {
+                InputStream in = assets.open(asset);
+                try {
+                    new EndgameTablebase(gameBoard).unpackSolution(in, dir);
+                } finally {
+                    in.close();
+                }
+                GameModeActivity activity = this.activity.get();
+                if (activity != null) {
+                    activity.setTablebase(EndgameTablebase.load(dir, gameBoard));
+                }
+            } catch (IOException e) {
+                Log.e("GameModeActivity", "Could not unpack " + asset + ": " + e);
+            } finally {
+                unpackingSolution.set(false);
+            }
+        }
+    }
+
     private void showNewGameAlertDialog(final boolean signalSelection){
         new AlertDialog.Builder(THIS)
         .setTitle(getString(R.string.start_new_game))
@@ -280,6 +393,7 @@ public class GameModeActivity extends FragmentActivity {
             new DialogInterface.OnClickListener() {
                 public void onClick(DialogInterface dialog, int whichButton) {
                     setResult(RESULT_RESTART);
+                    cancelBots();
                     gameThread.interrupt();
                     finish();
                 }
@@ -305,6 +419,7 @@ public class GameModeActivity extends FragmentActivity {
             new DialogInterface.OnClickListener() {
                 public void onClick(DialogInterface dialog,  int whichButton) {
                     setResult(RESULT_CANCELED);
+                    cancelBots();
                     gameThread.interrupt();
                     finish();
                 }
@@ -314,7 +429,25 @@ public class GameModeActivity extends FragmentActivity {
         .show();
     }
 
+    //the bots stop computing at once, also the threads of the pool that only interrupting the game thread would not reach
+    private void cancelBots(){
+        Strategy brain = playerBlackBrain;
+        if(brain != null) {
+            brain.cancel();
+        }
+        brain = playerWhiteBrain;
+        if(brain != null) {
+            brain.cancel();
+        }
+    }
+
     private void signalSelection(){
+        //the bot does not need to ponder any more as soon as the human has decided
+        Strategy brain = ponderingBrain;
+        if(brain != null) {
+            brain.stopPondering();
+            ponderingBrain = null;
+        }
         lock.lock();
         selected = true;
         selection.signal();
@@ -345,7 +478,8 @@ public class GameModeActivity extends FragmentActivity {
         }
     }
 
-    void humanTurn(final Player human) throws InterruptedException{
+    //the bot of the other player, if any, computes its next move for all moves of the human while he thinks
+    void humanTurn(final Player human, Strategy otherBrain) throws InterruptedException{
 
         currMove = null;
         Position newPosition;
@@ -353,6 +487,11 @@ public class GameModeActivity extends FragmentActivity {
         // be chosen while the animation plays, which seems not right
         fieldView.waitforAnimation();
 
+        if(otherBrain != null) {
+            ponderingBrain = otherBrain;
+            otherBrain.startPondering();
+        }
+
         refreshTextHuman(human);
 
         if(human.getSetCount() <= 0){
@@ -389,7 +528,7 @@ public class GameModeActivity extends FragmentActivity {
 
     void botTurn(final Player bot, Strategy brain) throws InterruptedException{
 
-        Thread t = new Thread(new Runnable() {
+        Future<?> animation = SearchWorkerPool.animationExecutor().submit(new Runnable() {
             @Override
             public void run() {
                 try {
@@ -402,15 +541,17 @@ public class GameModeActivity extends FragmentActivity {
             }
         });
 
-        t.start();
-
         Position newPosition;
         currMove = brain.computeMove();
 
-        // Thread t waits until the last animation is finished while computing the move is done in this thread
+        // another thread waits until the last animation is finished while computing the move is done in this thread
         // when the animation is finished the text, that its the bots turn that started computing already, is shown
         // and the progress is shown. Wait here until the animation is done AND the move is computed
-        t.join();
+        try {
+            animation.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
 
         // inactivate progress until the animations are finished
         progressUpdater.setActive(false);
@@ -4,10 +4,11 @@ import android.support.annotation.VisibleForTesting;
 
 public class Mill5 extends GameBoard {
 
-    @Override
-    public void initField(){
+    //the gameboard is compiled only once and shared by all instances
+    private static final GameBoardTopology TOPOLOGY = createTopology();
 
-       field = new GameBoardPosition[][] // first is y: [y][x]
+    private static GameBoardTopology createTopology(){
+        GameBoardPosition[][] field = GameBoardTopology.createPositions(new GameBoardPosition[][] // first is y: [y][x]
 
                 {{N, I, I, N, I, I, N},
                 { I, I, I, I, I, I, I},
@@ -15,50 +16,50 @@ public class Mill5 extends GameBoard {
                 { N, I, N, I, N, I, N},
                 { I, I, N, N, N, I, I},
                 { I, I, I, I, I, I, I},
-                { N, I, I, N, I, I, N}};
-
-        initGameBoardPositions();
+                { N, I, I, N, I, I, N}});
 
         //horizontal connections
-        getGameBoardPosAt(0,0).connectRight(getGameBoardPosAt(3,0));
-        getGameBoardPosAt(3,0).connectRight(getGameBoardPosAt(6,0));
+        field[0][0].connectRight(field[0][3]);
+        field[0][3].connectRight(field[0][6]);
 
-        getGameBoardPosAt(2,2).connectRight(getGameBoardPosAt(3,2));
-        getGameBoardPosAt(3,2).connectRight(getGameBoardPosAt(4,2));
+        field[2][2].connectRight(field[2][3]);
+        field[2][3].connectRight(field[2][4]);
 
-        getGameBoardPosAt(0,3).connectRight(getGameBoardPosAt(2,3));
-        getGameBoardPosAt(4,3).connectRight(getGameBoardPosAt(6,3));
+        field[3][0].connectRight(field[3][2]);
+        field[3][4].connectRight(field[3][6]);
 
-        getGameBoardPosAt(2,4).connectRight(getGameBoardPosAt(3,4));
-        getGameBoardPosAt(3,4).connectRight(getGameBoardPosAt(4,4));
+        field[4][2].connectRight(field[4][3]);
+        field[4][3].connectRight(field[4][4]);
 
-        getGameBoardPosAt(0,6).connectRight(getGameBoardPosAt(3,6));
-        getGameBoardPosAt(3,6).connectRight(getGameBoardPosAt(6,6));
+        field[6][0].connectRight(field[6][3]);
+        field[6][3].connectRight(field[6][6]);
 
         //vertical connections
-        getGameBoardPosAt(0,0).connectDown(getGameBoardPosAt(0,3));
-        getGameBoardPosAt(0,3).connectDown(getGameBoardPosAt(0,6));
+        field[0][0].connectDown(field[3][0]);
+        field[3][0].connectDown(field[6][0]);
+
+        field[2][2].connectDown(field[3][2]);
+        field[3][2].connectDown(field[4][2]);
 
-        getGameBoardPosAt(2,2).connectDown(getGameBoardPosAt(2,3));
-        getGameBoardPosAt(2,3).connectDown(getGameBoardPosAt(2,4));
+        field[0][3].connectDown(field[2][3]);
+        field[4][3].connectDown(field[6][3]);
 
-        getGameBoardPosAt(3,0).connectDown(getGameBoardPosAt(3,2));
-        getGameBoardPosAt(3,4).connectDown(getGameBoardPosAt(3,6));
+        field[2][4].connectDown(field[3][4]);
+        field[3][4].connectDown(field[4][4]);
 
-        getGameBoardPosAt(4,2).connectDown(getGameBoardPosAt(4,3));
-        getGameBoardPosAt(4,3).connectDown(getGameBoardPosAt(4,4));
+        field[0][6].connectDown(field[3][6]);
+        field[3][6].connectDown(field[6][6]);
 
-        getGameBoardPosAt(6,0).connectDown(getGameBoardPosAt(6,3));
-        getGameBoardPosAt(6,3).connectDown(getGameBoardPosAt(6,6));
+        return new GameBoardTopology(field);
     }
     
     Mill5() {
-        initField();
+        super(TOPOLOGY);
     }
 
     @VisibleForTesting
     Mill5(Options.Color[][] inputField) {
-        super(inputField);
+        super(TOPOLOGY, inputField);
     }
 
     @Override
@@ -67,9 +68,8 @@ public class Mill5 extends GameBoard {
     }
 
     //copy constructor
-    Mill5(Mill5 other){
-        initField();
-        initGameBoardPositionsFrom(other);
+    Mill5(Mill5 other) {
+        super(other);
     }
 
     
@@ -4,10 +4,11 @@ import android.support.annotation.VisibleForTesting;
 
 public class Mill7 extends GameBoard {
 
-    @Override
-    public void initField() {
+    //the gameboard is compiled only once and shared by all instances
+    private static final GameBoardTopology TOPOLOGY = createTopology();
 
-        field = new GameBoardPosition[][] // first is y: [y][x]
+    private static GameBoardTopology createTopology(){
+        GameBoardPosition[][] field = GameBoardTopology.createPositions(new GameBoardPosition[][] // first is y: [y][x]
 
                 {{N, I, I, N, I, I, N},
                 { I, N, I, N, I, N, I},
@@ -15,54 +16,60 @@ public class Mill7 extends GameBoard {
                 { N, N, I, N, I, N, N},
                 { I, I, I, I, I, I, I},
                 { I, N, I, N, I, N, I},
-                { N, I, I, N, I, I, N}};
-
-        initGameBoardPositions();
+                { N, I, I, N, I, I, N}});
 
         //horizontal connections
-        getGameBoardPosAt(0, 0).connectRight(getGameBoardPosAt(3, 0));
-        getGameBoardPosAt(3, 0).connectRight(getGameBoardPosAt(6, 0));
+        field[0][0].connectRight(field[0][3]);
+        field[0][3].connectRight(field[0][6]);
 
-        getGameBoardPosAt(1, 1).connectRight(getGameBoardPosAt(3, 1));
-        getGameBoardPosAt(3, 1).connectRight(getGameBoardPosAt(5, 1));
+        field[1][1].connectRight(field[1][3]);
+        field[1][3].connectRight(field[1][5]);
 
-        getGameBoardPosAt(0, 3).connectRight(getGameBoardPosAt(1, 3));
-        getGameBoardPosAt(1, 3).connectRight(getGameBoardPosAt(3, 3));
-        getGameBoardPosAt(3, 3).connectRight(getGameBoardPosAt(5, 3));
-        getGameBoardPosAt(5, 3).connectRight(getGameBoardPosAt(6, 3));
+        field[3][0].connectRight(field[3][1]);
+        field[3][1].connectRight(field[3][3]);
+        field[3][3].connectRight(field[3][5]);
+        field[3][5].connectRight(field[3][6]);
 
-        getGameBoardPosAt(1, 5).connectRight(getGameBoardPosAt(3, 5));
-        getGameBoardPosAt(3, 5).connectRight(getGameBoardPosAt(5, 5));
+        field[5][1].connectRight(field[5][3]);
+        field[5][3].connectRight(field[5][5]);
 
-        getGameBoardPosAt(0, 6).connectRight(getGameBoardPosAt(3, 6));
-        getGameBoardPosAt(3, 6).connectRight(getGameBoardPosAt(6, 6));
+        field[6][0].connectRight(field[6][3]);
+        field[6][3].connectRight(field[6][6]);
 
         //vertical connections
-        getGameBoardPosAt(0, 0).connectDown(getGameBoardPosAt(0, 3));
-        getGameBoardPosAt(0, 3).connectDown(getGameBoardPosAt(0, 6));
+        field[0][0].connectDown(field[3][0]);
+        field[3][0].connectDown(field[6][0]);
 
-        getGameBoardPosAt(1, 1).connectDown(getGameBoardPosAt(1, 3));
-        getGameBoardPosAt(1, 3).connectDown(getGameBoardPosAt(1, 5));
+        field[1][1].connectDown(field[3][1]);
+        field[3][1].connectDown(field[5][1]);
 
-        getGameBoardPosAt(3, 0).connectDown(getGameBoardPosAt(3, 1));
-        getGameBoardPosAt(3, 1).connectDown(getGameBoardPosAt(3, 3));
-        getGameBoardPosAt(3, 3).connectDown(getGameBoardPosAt(3, 5));
-        getGameBoardPosAt(3, 5).connectDown(getGameBoardPosAt(3, 6));
+        field[0][3].connectDown(field[1][3]);
+        field[1][3].connectDown(field[3][3]);
+        field[3][3].connectDown(field[5][3]);
+        field[5][3].connectDown(field[6][3]);
 
-        getGameBoardPosAt(5, 1).connectDown(getGameBoardPosAt(5, 3));
-        getGameBoardPosAt(5, 3).connectDown(getGameBoardPosAt(5, 5));
+        field[1][5].connectDown(field[3][5]);
+        field[3][5].connectDown(field[5][5]);
 
-        getGameBoardPosAt(6, 0).connectDown(getGameBoardPosAt(6, 3));
-        getGameBoardPosAt(6, 3).connectDown(getGameBoardPosAt(6, 6));
+        field[0][6].connectDown(field[3][6]);
+        field[3][6].connectDown(field[6][6]);
+
+        return new GameBoardTopology(field){
+            //Mill7 is a special case: the middle of the gameboard can not be the middle of a mill
+            @Override
+            boolean isMill(Position first, Position middle, Position last){
+                return !middle.equals(new Position(3,3));
+            }
+        };
     }
 
     Mill7() {
-        initField();
+        super(TOPOLOGY);
     }
 
     @VisibleForTesting
     Mill7(Options.Color[][] inputField) {
-        super(inputField);
+        super(TOPOLOGY, inputField);
     }
 
     @Override
@@ -72,37 +79,7 @@ public class Mill7 extends GameBoard {
 
     //copy constructor
     Mill7(Mill7 other) {
-        initField();
-        initGameBoardPositionsFrom(other);
-    }
-
-
-    //Mill7 is a special case so override the function here
-    @Override
-    Position[] getMillOrPartialMill(Position p, Options.Color player, boolean partial){
-
-        Position[] mill = super.getMillOrPartialMill(p, player ,partial);
-
-        Position middle = new Position(3,3);
-        Position[] criticalPositions = {new Position(1,3), new Position(5,3), new Position(3,1), new Position(3,5)};
-
-        //overwrite mill as it may not really be a mill for mill7
-        if(p.equals(middle)) {
-            mill = getMillWithPosAtCorner(getGameBoardPosAt(p), player, partial);
-            if (mill != null) {
-                return mill;
-            }
-        }
-        for(Position criticalPos : criticalPositions) {
-            if(p.equals(criticalPos)) {
-                mill = getMillWithPosInMiddle(getGameBoardPosAt(p), player, partial);
-                if (mill != null) {
-                    return mill;
-                }
-            }
-        }
-
-        return mill;
+        super(other);
     }
 
 }
\ No newline at end of file
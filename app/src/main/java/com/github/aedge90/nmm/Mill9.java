@@ -4,10 +4,11 @@ import android.support.annotation.VisibleForTesting;
 
 public class Mill9 extends GameBoard {
 
-    @Override
-    public void initField(){
+    //the gameboard is compiled only once and shared by all instances
+    private static final GameBoardTopology TOPOLOGY = createTopology();
 
-        field = new GameBoardPosition[][] // first is y: [y][x]
+    private static GameBoardTopology createTopology(){
+        GameBoardPosition[][] field = GameBoardTopology.createPositions(new GameBoardPosition[][] // first is y: [y][x]
 
                 {{N, I, I, N, I, I, N},
                 { I, N, I, N, I, N, I},
@@ -15,66 +16,66 @@ public class Mill9 extends GameBoard {
                 { N, N, N, I, N, N, N},
                 { I, I, N, N, N, I, I},
                 { I, N, I, N, I, N, I},
-                { N, I, I, N, I, I, N}};
-
-        initGameBoardPositions();
+                { N, I, I, N, I, I, N}});
 
         //horizontal connections
-        getGameBoardPosAt(0,0).connectRight(getGameBoardPosAt(3,0));
-        getGameBoardPosAt(3,0).connectRight(getGameBoardPosAt(6,0));
+        field[0][0].connectRight(field[0][3]);
+        field[0][3].connectRight(field[0][6]);
 
-        getGameBoardPosAt(1,1).connectRight(getGameBoardPosAt(3,1));
-        getGameBoardPosAt(3,1).connectRight(getGameBoardPosAt(5,1));
+        field[1][1].connectRight(field[1][3]);
+        field[1][3].connectRight(field[1][5]);
 
-        getGameBoardPosAt(2,2).connectRight(getGameBoardPosAt(3,2));
-        getGameBoardPosAt(3,2).connectRight(getGameBoardPosAt(4,2));
+        field[2][2].connectRight(field[2][3]);
+        field[2][3].connectRight(field[2][4]);
 
-        getGameBoardPosAt(0,3).connectRight(getGameBoardPosAt(1,3));
-        getGameBoardPosAt(1,3).connectRight(getGameBoardPosAt(2,3));
-        getGameBoardPosAt(4,3).connectRight(getGameBoardPosAt(5,3));
-        getGameBoardPosAt(5,3).connectRight(getGameBoardPosAt(6,3));
+        field[3][0].connectRight(field[3][1]);
+        field[3][1].connectRight(field[3][2]);
+        field[3][4].connectRight(field[3][5]);
+        field[3][5].connectRight(field[3][6]);
 
-        getGameBoardPosAt(2,4).connectRight(getGameBoardPosAt(3,4));
-        getGameBoardPosAt(3,4).connectRight(getGameBoardPosAt(4,4));
+        field[4][2].connectRight(field[4][3]);
+        field[4][3].connectRight(field[4][4]);
 
-        getGameBoardPosAt(1,5).connectRight(getGameBoardPosAt(3,5));
-        getGameBoardPosAt(3,5).connectRight(getGameBoardPosAt(5,5));
+        field[5][1].connectRight(field[5][3]);
+        field[5][3].connectRight(field[5][5]);
 
-        getGameBoardPosAt(0,6).connectRight(getGameBoardPosAt(3,6));
-        getGameBoardPosAt(3,6).connectRight(getGameBoardPosAt(6,6));
+        field[6][0].connectRight(field[6][3]);
+        field[6][3].connectRight(field[6][6]);
 
         //vertical connections
-        getGameBoardPosAt(0,0).connectDown(getGameBoardPosAt(0,3));
-        getGameBoardPosAt(0,3).connectDown(getGameBoardPosAt(0,6));
+        field[0][0].connectDown(field[3][0]);
+        field[3][0].connectDown(field[6][0]);
+
+        field[1][1].connectDown(field[3][1]);
+        field[3][1].connectDown(field[5][1]);
 
-        getGameBoardPosAt(1,1).connectDown(getGameBoardPosAt(1,3));
-        getGameBoardPosAt(1,3).connectDown(getGameBoardPosAt(1,5));
+        field[2][2].connectDown(field[3][2]);
+        field[3][2].connectDown(field[4][2]);
 
-        getGameBoardPosAt(2,2).connectDown(getGameBoardPosAt(2,3));
-        getGameBoardPosAt(2,3).connectDown(getGameBoardPosAt(2,4));
+        field[0][3].connectDown(field[1][3]);
+        field[1][3].connectDown(field[2][3]);
+        field[4][3].connectDown(field[5][3]);
+        field[5][3].connectDown(field[6][3]);
 
-        getGameBoardPosAt(3,0).connectDown(getGameBoardPosAt(3,1));
-        getGameBoardPosAt(3,1).connectDown(getGameBoardPosAt(3,2));
-        getGameBoardPosAt(3,4).connectDown(getGameBoardPosAt(3,5));
-        getGameBoardPosAt(3,5).connectDown(getGameBoardPosAt(3,6));
+        field[2][4].connectDown(field[3][4]);
+        field[3][4].connectDown(field[4][4]);
 
-        getGameBoardPosAt(4,2).connectDown(getGameBoardPosAt(4,3));
-        getGameBoardPosAt(4,3).connectDown(getGameBoardPosAt(4,4));
+        field[1][5].connectDown(field[3][5]);
+        field[3][5].connectDown(field[5][5]);
 
-        getGameBoardPosAt(5,1).connectDown(getGameBoardPosAt(5,3));
-        getGameBoardPosAt(5,3).connectDown(getGameBoardPosAt(5,5));
+        field[0][6].connectDown(field[3][6]);
+        field[3][6].connectDown(field[6][6]);
 
-        getGameBoardPosAt(6,0).connectDown(getGameBoardPosAt(6,3));
-        getGameBoardPosAt(6,3).connectDown(getGameBoardPosAt(6,6));
+        return new GameBoardTopology(field);
     }
 
     Mill9() {
-        initField();
+        super(TOPOLOGY);
     }
 
     @VisibleForTesting
     Mill9(Options.Color[][] inputField) {
-        super(inputField);
+        super(TOPOLOGY, inputField);
     }
 
     @Override
@@ -83,9 +84,8 @@ public class Mill9 extends GameBoard {
     }
 
     //copy constructor
-    Mill9(Mill9 other){
-        initField();
-        initGameBoardPositionsFrom(other);
+    Mill9(Mill9 other) {
+        super(other);
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -6,17 +6,13 @@ public class Move {
     private final Position dest; //if only dest is set, then this is a move in the set phase
     private final Position kill;
 
-    private double evaluation;
-    
     Move(Position dest, Position src, Position kill){
-        this.evaluation = 0;
         this.src = src;
         this.dest = dest;
         this.kill = kill;
     }
 
     Move(Move other){
-        this.evaluation = other.evaluation;
         this.src = other.src;
         this.dest = other.dest;
         this.kill = other.kill;
@@ -34,14 +30,6 @@ public class Move {
         return kill;
     }
 
-    public double getEvaluation() {
-        return evaluation;
-    }
-
-    public void setEvaluation(double evaluation) {
-        this.evaluation = evaluation;
-    }
-
     @Override
     public String toString(){
         return "src: " + src + " dest: " + dest + " kill: " + kill;
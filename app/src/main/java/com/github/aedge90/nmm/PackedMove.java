@@ -0,0 +1,42 @@
+package com.github.aedge90.nmm;
+
+/**
+ * A move packed into an int, so the search can store moves in plain int arrays instead of allocating Move objects.
+ * The points are the indices of the positions in the bitboards of the GameBoard the move belongs to.
+ * Bits 0-4 hold the destination, bits 5-9 the source plus one and bits 10-14 the killed point plus one,
+ * so 0 in the source or kill bits means the move has no source (set phase) or no kill.
+ */
+
+final class PackedMove {
+
+    static final int NONE = -1;
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private PackedMove() {
+    }
+
+    static int of(int dest, int src, int kill){
+        return dest | ((src + 1) << BITS) | ((kill + 1) << (2 * BITS));
+    }
+
+    static int withKill(int move, int kill){
+        return (move & ~(MASK << (2 * BITS))) | ((kill + 1) << (2 * BITS));
+    }
+
+    static int dest(int move){
+        return move & MASK;
+    }
+
+    //returns NONE if this is a move of the set phase
+    static int src(int move){
+        return ((move >>> BITS) & MASK) - 1;
+    }
+
+    //returns NONE if the move does not kill
+    static int kill(int move){
+        return ((move >>> (2 * BITS)) & MASK) - 1;
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.github.aedge90.nmm;
+
+/**
+ * Numbers all positions with a given number of pieces of the player to move and of the other player densely
+ * from 0 to size - 1, so data about every position can be stored in a plain array.
+ * The pieces of the player to move are ranked among all points of the gameboard, the pieces of the other player
+ * among the points that are left empty, both in colex order: the i-th lowest piece on point p adds binomial(p, i).
+ * The sum is looked up for every byte of a mask, given the number of pieces in the bytes below it.
+ * A subclass may number less placements of the pieces of the player to move, e.g. the SymmetricPositionIndex of
+ * the generator only one of every class of symmetric ones.
+ * Ranking and unranking never allocate anything, so they can be used for every position a generator visits.
+ */
+
+class PositionIndex {
+
+    //binomial(n, k) for all n and k up to the number of points a gameboard can have
+    private static final int[][] BINOMIALS = new int[33][33];
+    static {
+        for (int n = 0; n < BINOMIALS.length; n++) {
+            BINOMIALS[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                BINOMIALS[n][k] = BINOMIALS[n - 1][k - 1] + BINOMIALS[n - 1][k];
+            }
+        }
+    }
+
+    //the colex rank of the bits of a byte of a mask: at (33 * byte + number of bits below it) * 256 + value
+    private static final int[] COLEX_RANKS = new int[4 * 33 * 256];
+    static {
+        for (int b = 0; b < 4; b++) {
+            for (int below = 0; below <= 32; below++) {
+                for (int value = 0; value < 256; value++) {
+                    int rank = 0;
+                    int i = below + 1;
+                    for (int bits = value; bits != 0 && i <= 32; bits &= bits - 1) {
+                        rank += BINOMIALS[8 * b + Integer.numberOfTrailingZeros(bits)][i++];
+                    }
+                    COLEX_RANKS[(b * 33 + below) * 256 + value] = rank;
+                }
+            }
+        }
+    }
+
+    final int nPoints;
+    final int nMover;
+    final int nOther;
+    //the number of ways the pieces of the other player can be placed for every placement of the ones to move
+    final int nOtherPlacements;
+    final int size;
+
+    PositionIndex(int nPoints, int nMover, int nOther) {
+        this(nPoints, nMover, nOther, binomial(nPoints, nMover));
+    }
+
+    //numbers nMoverPlacements placements of the pieces of the player to move
+    PositionIndex(int nPoints, int nMover, int nOther, int nMoverPlacements) {
+        if (nMover + nOther > nPoints) {
+            throw new IllegalArgumentException(nMover + " and " + nOther + " pieces do not fit on " + nPoints + " points");
+        }
+        this.nPoints = nPoints;
+        this.nMover = nMover;
+        this.nOther = nOther;
+        this.nOtherPlacements = BINOMIALS[nPoints - nMover][nOther];
+        long size = (long) nMoverPlacements * nOtherPlacements;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("There are too many positions with " + nMover + " and " + nOther + " pieces");
+        }
+        this.size = (int) size;
+    }
+
+    static int binomial(int n, int k) {
+        if (k < 0 || k > n) {
+            return 0;
+        }
+        return BINOMIALS[n][k];
+    }
+
+    //the masks have to contain exactly nMover and nOther pieces
+    int rank(int moverPieces, int otherPieces) {
+        return colexRank(moverPieces) * nOtherPlacements + rankOther(otherPieces, moverPieces);
+    }
+
+    int unrankMover(int index) {
+        return colexUnrank(index / nOtherPlacements, nMover);
+    }
+
+    int unrankOther(int index, int moverPieces) {
+        return expand(colexUnrank(index % nOtherPlacements, nOther), moverPieces);
+    }
+
+    //the rank of a mask among all masks with as many bits. Masks with the same number of bits have the same order
+    //by their colex rank and by their value
+    static int colexRank(int mask) {
+        int b0 = mask & 0xFF;
+        int b1 = (mask >>> 8) & 0xFF;
+        int b2 = (mask >>> 16) & 0xFF;
+        int below1 = Integer.bitCount(b0);
+        int below2 = below1 + Integer.bitCount(b1);
+        int below3 = below2 + Integer.bitCount(b2);
+        return COLEX_RANKS[b0] + COLEX_RANKS[(33 + below1) * 256 + b1]
+                + COLEX_RANKS[(2 * 33 + below2) * 256 + b2] + COLEX_RANKS[(3 * 33 + below3) * 256 + (mask >>> 24)];
+    }
+
+    //the rank of the pieces of the other player among the points the pieces of the player to move leave empty
+    static int rankOther(int otherPieces, int moverPieces) {
+        return colexRank(compress(otherPieces, moverPieces));
+    }
+
+    private int colexUnrank(int rank, int k) {
+        int mask = 0;
+        int p = nPoints - 1;
+        for (int i = k; i > 0; i--) {
+            while (BINOMIALS[p][i] > rank) {
+                p--;
+            }
+            rank -= BINOMIALS[p][i];
+            mask |= 1 << p;
+            p--;
+        }
+        return mask;
+    }
+
+    //numbers the points that are not in used from 0 on, and returns which of them are in pieces.
+    //Removes the bit of every used point from the lowest one on, which moves the ones above it down
+    private static int compress(int pieces, int used) {
+        for (int removed = 0; used != 0; used &= used - 1, removed++) {
+            int point = Integer.numberOfTrailingZeros(used) - removed;
+            int below = (1 << point) - 1;
+            pieces = (pieces & below) | ((pieces >>> 1) & ~below);
+        }
+        return pieces;
+    }
+
+    //the reverse of compress: inserts a bit for every used point from the lowest one on
+    private static int expand(int compressed, int used) {
+        for (; used != 0; used &= used - 1) {
+            int below = Integer.lowestOneBit(used) - 1;
+            compressed = (compressed & below) | ((compressed & ~below) << 1);
+        }
+        return compressed;
+    }
+
+}
@@ -16,7 +16,15 @@ public class ProgressUpdater {
         this.progress = 0;
     }
 
+    //for searches whose progress is not shown, like pondering
+    ProgressUpdater() {
+        this(null, null);
+    }
+
     public void setMax(final int max) {
+        if(c == null) {
+            return;
+        }
         c.runOnUiThread(new Runnable() {
             @Override
             public void run() {
@@ -27,6 +35,9 @@ public class ProgressUpdater {
     
     public void increment() {
         progress++;
+        if(c == null) {
+            return;
+        }
         if(active) {
             c.runOnUiThread(new Runnable() {
                 @Override
@@ -46,6 +57,9 @@ public class ProgressUpdater {
     
     public void reset(){
         progress = 0;
+        if(c == null) {
+            return;
+        }
         c.runOnUiThread(new Runnable() {
             @Override
             public void run() {
@@ -0,0 +1,131 @@
+package com.github.aedge90.nmm;
+
+import android.annotation.SuppressLint;
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads all Strategies search with. They are only started when a bot computes its first move and then live
+ * until shutdown is called, so no threads are created while playing. The thread that computes a move searches too,
+ * so there is one worker less than there are processors. The workers run with background priority,
+ * so the animations of the UI stay smooth.
+ * The ForkJoinPool of the young brothers wait search is kept here as well, as it has threads of its own,
+ * and the thread that ponders, which waits for the workers just like the thread that computes a move.
+ * The game waits for the animations on a thread of its own while a bot computes its move, as waiting on one of
+ * the workers would leave the search with one worker less, or none on two processors.
+ * The thread that unpacks the solutions of the tablebases is not stopped by shutdown, as a solution that is unpacked
+ * completely is used by every later game.
+ */
+
+final class SearchWorkerPool {
+
+    private static ExecutorService executor;
+    private static ForkJoinPool forkJoinPool;
+    private static ExecutorService ponderExecutor;
+    private static ExecutorService animationExecutor;
+    private static ExecutorService tablebaseExecutor;
+    //the threads of all pools are numbered by their factories, which may be called by several pools at the same time
+    private static final AtomicInteger nWorkers = new AtomicInteger();
+
+    private SearchWorkerPool() {
+    }
+
+    //the number of threads a search should use
+    static int nThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    static synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(1, nThreads() - 1), backgroundThreadFactory("Search worker "));
+        }
+        return executor;
+    }
+
+    static synchronized ExecutorService ponderExecutor() {
+        if (ponderExecutor == null) {
+            ponderExecutor = Executors.newSingleThreadExecutor(backgroundThreadFactory("Ponder "));
+        }
+        return ponderExecutor;
+    }
+
+    static synchronized ExecutorService animationExecutor() {
+        if (animationExecutor == null) {
+            animationExecutor = Executors.newSingleThreadExecutor(backgroundThreadFactory("Animation "));
+        }
+        return animationExecutor;
+    }
+
+    static synchronized ExecutorService tablebaseExecutor() {
+        if (tablebaseExecutor == null) {
+            tablebaseExecutor = Executors.newSingleThreadExecutor(backgroundThreadFactory("Tablebase "));
+        }
+        return tablebaseExecutor;
+    }
+
+    private static ThreadFactory backgroundThreadFactory(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, name + nWorkers.getAndIncrement());
+                //never keep the app alive just because of them
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    //only used for YOUNG_BROTHERS_WAIT, which can only be chosen from API 21 on
+    @SuppressLint("NewApi")
+    static synchronized ForkJoinPool forkJoinPool() {
+        if (forkJoinPool == null) {
+            forkJoinPool = new ForkJoinPool(nThreads(), new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                @Override
+                public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                    return new ForkJoinWorkerThread(pool) {
+                        @Override
+                        protected void onStart() {
+                            super.onStart();
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        }
+                    };
+                }
+            }, null, false);
+        }
+        return forkJoinPool;
+    }
+
+    //interrupts all searches that are still running and stops the threads. The pools are started again if needed
+    @SuppressLint("NewApi")
+    static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        if (forkJoinPool != null) {
+            forkJoinPool.shutdownNow();
+            forkJoinPool = null;
+        }
+        if (ponderExecutor != null) {
+            ponderExecutor.shutdownNow();
+            ponderExecutor = null;
+        }
+        if (animationExecutor != null) {
+            animationExecutor.shutdownNow();
+            animationExecutor = null;
+        }
+    }
+
+}
@@ -1,36 +1,154 @@
 package com.github.aedge90.nmm;
 
+import android.annotation.SuppressLint;
+import android.os.Build;
 import android.support.annotation.VisibleForTesting;
+import android.util.Log;
 
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Strategy {
 
+    //how the threads share the work:
+    //ROOT_SPLITTING: the threads take the moves at the root one after another from possibleMovesKickoff. Every better move
+    //one of them finds is used as the window of the others right away (see rootResult)
+    //LAZY_SMP: every thread searches all moves at the root. Only the result of the first thread is used, the others
+    //just fill the transposition table, each starting with another move, and are stopped as soon as it is done
+    //YOUNG_BROTHERS_WAIT: the first move of every node that is deep enough is searched first, and then all others
+    //in parallel as tasks of a ForkJoinPool. Needs Android 5.0 (API 21). The bots of the app use it from there on
+    //if there is more than one processor, as it searches less nodes than ROOT_SPLITTING with several threads
+    enum Parallelism {
+        ROOT_SPLITTING, LAZY_SMP, YOUNG_BROTHERS_WAIT
+    }
+
+    //how long the bot of every difficulty may think about a move in milliseconds. The search is deepened step by step
+    //up to the depth of the difficulty, and stops with the result of the last complete depth if the time is up
+    private static final long[] TIME_BUDGETS = {500, 750, 1000, 1500, 2500, 4000, 6000};
+    //every iteration is searched with a window of this size around the evaluation of the last one (aspiration window).
+    //If the evaluation is outside of it, the window is widened by ASPIRATION_WIDENING, and not used at all
+    //any more if it would get wider than MAX_ASPIRATION_WINDOW
+    private static final double ASPIRATION_WINDOW = 2;
+    private static final double ASPIRATION_WIDENING = 4;
+    private static final double MAX_ASPIRATION_WINDOW = 32;
+
     private int nThreads;
-    private Thread[] threads;
+    private final boolean useTimeBudget;
+    private Future<?>[] futures;
     private StrategyRunnable[] runnables;
     private final ProgressUpdater up;
 
     private final GameBoard gameBoard;
     private final Player maxPlayer;
 
-    double maxWertKickoff;
+    //the game state the threads search from, shared by all of them
+    GameBoardSnapshot snapshot;
+    //the best move at the root so far and its evaluation. It is replaced atomically by every better move, and read by
+    //the running searches every few nodes, so they can use the better evaluation as alpha right away
+    static final class RootResult {
+        final Move move;
+        final double evaluation;
+
+        RootResult(Move move, double evaluation) {
+            this.move = move;
+            this.evaluation = evaluation;
+        }
+    }
+    final AtomicReference<RootResult> rootResult = new AtomicReference<RootResult>();
+    double betaKickoff;
     Move resultMove;
     double resultEvaluation;
-    LinkedList<Move> possibleMovesKickoff;
+    //the moves at the root. The threads take them one after another by incrementing nextMoveKickoff
+    Move[] possibleMovesKickoff;
+    final AtomicInteger nextMoveKickoff = new AtomicInteger();
     int nPossibleMovesKickoff;
+    //results of the search shared by all threads. 2^15 buckets of two entries take 1.5 MB
+    //it is kept from one move to the next. If the other player made the move the last search expected,
+    //the position was already searched, nearly as deep as needed now
+    final TranspositionTable transpositionTable;
+    private int nReusedSearches;
+    private double transpositionTableHitRate;
+    //the perfect results of the endgame, which are used instead of searching its positions. Null if there are no
+    //tables for the variant of the gameboard
+    volatile EndgameTablebase tablebase;
+    private long nTablebaseHits;
+    //the depth of the current iteration and when it has to be stopped
+    int searchDepth;
+    volatile long deadline;
+    private int reachedDepth;
+    private int nAspirationFailHighs;
+    private int nAspirationFailLows;
+    Parallelism parallelism = Parallelism.ROOT_SPLITTING;
+    LinkedList<Move> rootMoves;
+    //the evaluations of the moves at the root in the last search of it, which are only bounds for all but the best one
+    final Map<Move, Double> rootScores = new ConcurrentHashMap<Move, Double>();
+    double rootAlpha;
+    volatile boolean stopHelpers;
+    //counts the searches of the root, so runnables that only search tasks know when a new one started
+    int nSearches;
+    //a task may be executed by a thread while it waits for the tasks it forked itself, so every task needs
+    //its own runnable, and not every thread. They are reused for all later tasks
+    private final LinkedList<StrategyRunnable> freeSearchers = new LinkedList<StrategyRunnable>();
+    private final LinkedList<StrategyRunnable> searchers = new LinkedList<StrategyRunnable>();
+
+    //pondering: while the other player thinks about his move, the moves for all his possible moves are computed
+    //on a gameboard of its own. The ponderer shares the transposition table, so even a search that was not done
+    //when the other player moved makes the search of the real move a lot faster, as it finds all its results there
+    private static class PonderResult {
+        final Move move;
+        final double evaluation;
+        final int depth;
+
+        PonderResult(Move move, double evaluation, int depth) {
+            this.move = move;
+            this.evaluation = evaluation;
+            this.depth = depth;
+        }
+    }
+    private Strategy ponderer;
+    private GameBoard ponderBoard;
+    private Future<?> pondering;
+    //the computed moves by the key of the position after the move of the other player
+    private final Map<Long, PonderResult> ponderResults = new HashMap<Long, PonderResult>();
+    private int nPonderHits;
+    //stops all threads searching for this strategy, e.g. as the game was quit or the ponderer is not needed any more
+    final CancellationToken cancellation = new CancellationToken();
 
     Strategy(final GameBoard field, final Player player, final ProgressUpdater up) {
-        this(field, player, up, 7);
+        this(field, player, up, SearchWorkerPool.nThreads(), true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && nThreads > 1) {
+            parallelism = Parallelism.YOUNG_BROTHERS_WAIT;
+        }
     }
 
+    //without a time budget, so the result does only depend on the difficulty
     @VisibleForTesting
     Strategy(final GameBoard field, final Player player, final ProgressUpdater up, final int nThreads) {
+        this(field, player, up, nThreads, false);
+    }
+
+    private Strategy(final GameBoard field, final Player player, final ProgressUpdater up, final int nThreads, final boolean useTimeBudget) {
+        this(field, player, up, nThreads, useTimeBudget, null);
+    }
+
+    private Strategy(final GameBoard field, final Player player, final ProgressUpdater up, final int nThreads, final boolean useTimeBudget,
+                     final TranspositionTable transpositionTable) {
         this.gameBoard = field;
+        //the table of a ponderer belongs to the strategy it ponders for
+        this.transpositionTable = transpositionTable != null ? transpositionTable : new TranspositionTable(15);
+        this.useTimeBudget = useTimeBudget;
         this.maxPlayer = player;
         this.nThreads = nThreads;
-        this.threads = new Thread[nThreads];
+        this.futures = new Future<?>[nThreads];
         this.runnables = new StrategyRunnable[nThreads];
         this.up = up;
         for (int i = 0; i < nThreads; i++){
@@ -40,36 +158,447 @@ public class Strategy {
 
     public Move computeMove() throws InterruptedException {
 
+        long startTime = System.currentTimeMillis();
+
+        GameBoardSnapshot previousPosition = snapshot;
+        snapshot = gameBoard.snapshot(maxPlayer);
+
+        finishPondering();
+        PonderResult ponderResult = ponderResults.get(snapshot.getKey());
+        ponderResults.clear();
+        if (ponderResult != null) {
+            nPonderHits++;
+            resultMove = ponderResult.move;
+            resultEvaluation = ponderResult.evaluation;
+            reachedDepth = ponderResult.depth;
+            Log.d("Strategy", "depth " + reachedDepth + " computed while pondering");
+            setPreviousMove(resultMove);
+            return resultMove;
+        }
+
         // shuffle list, so we dont end up with the same moves every game
-        possibleMovesKickoff = shuffleListOfPossMoves();
+        LinkedList<Move> possibleMoves = shuffleListOfPossMoves();
 
-        nPossibleMovesKickoff = possibleMovesKickoff.size();
+        //the hardest bot does not search at all if the tablebase knows the position, e.g. if the variant was solved
+        if (maxPlayer.getDifficulty() == Options.Difficulties.HARDEST && tablebase != null) {
+            Move move = tablebaseMove(possibleMoves);
+            if (move != null) {
+                resultMove = move;
+                reachedDepth = 0;
+                Log.d("Strategy", "move of the tablebase in " + (System.currentTimeMillis() - startTime) + " ms");
+                setPreviousMove(resultMove);
+                return resultMove;
+            }
+        }
 
-        up.setMax(nPossibleMovesKickoff);
+        nPossibleMovesKickoff = possibleMoves.size();
 
-        //not Double.MIN_VALUE as thats the number with the smallest magnitude....
-        maxWertKickoff = -Double.MAX_VALUE;
-        resultMove = null;
-        //not StrategyRunnable.MIN as StrategyRunnable.MIN might be multiplied in evaluation and thus is not the minimal possible number
-        resultEvaluation = -Double.MAX_VALUE;
-        for (int i = 0; i < nThreads; i++) {
-            threads[i] = new Thread(runnables[i]);
-            threads[i].start();
+        transpositionTable.newSearch();
+        for (StrategyRunnable runnable : allRunnables()) {
+            runnable.nProbes = 0;
+            runnable.nHits = 0;
+            runnable.nTablebaseHits = 0;
         }
-        for (int i = 0; i < nThreads; i++){
-            threads[i].join();
+
+        Move bestMove = null;
+        double bestEvaluation = -Double.MAX_VALUE;
+        int maxDepth = maxPlayer.getDifficulty().ordinal() + 1;
+        //the first iteration is never stopped by the time, so there is always a move, unless the search is cancelled
+        deadline = Long.MAX_VALUE;
+        reachedDepth = 0;
+        nAspirationFailHighs = 0;
+        nAspirationFailLows = 0;
+        rootScores.clear();
+        //the iterations the last search already did for this position are skipped
+        TranspositionTable.Entry previousResult = previousResult(previousPosition, runnables[0].getPreviousMove());
+        if (previousResult != null) {
+            for (Move move : possibleMoves) {
+                if (gameBoard.toPackedMove(move) == previousResult.move) {
+                    bestMove = move;
+                    bestEvaluation = previousResult.evaluation;
+                    reachedDepth = Math.min(previousResult.depth, maxDepth);
+                    nReusedSearches++;
+                    if (useTimeBudget) {
+                        deadline = startTime + TIME_BUDGETS[maxPlayer.getDifficulty().ordinal()];
+                    }
+                    break;
+                }
+            }
+        }
+        iterations:
+        for (searchDepth = reachedDepth + 1; searchDepth <= maxDepth; searchDepth++) {
+
+            if (cancellation.isCancelled()) {
+                break;
+            }
+
+            //not Double.MIN_VALUE as thats the number with the smallest magnitude....
+            double alpha = -Double.MAX_VALUE;
+            double beta = Double.MAX_VALUE;
+            double window = ASPIRATION_WINDOW;
+            //there is no use in a window if the game is decided anyways
+            if (bestMove != null && Math.abs(bestEvaluation) < StrategyRunnable.WON - StrategyRunnable.STEP) {
+                alpha = bestEvaluation - window;
+                beta = bestEvaluation + window;
+            }
+            while (true) {
+                if (!searchRoot(possibleMoves, bestMove, alpha, beta)) {
+                    break iterations;
+                }
+                if (resultMove == null) {
+                    nAspirationFailLows++;
+                    window *= ASPIRATION_WIDENING;
+                    alpha = window > MAX_ASPIRATION_WINDOW ? -Double.MAX_VALUE : bestEvaluation - window;
+                } else if (resultEvaluation >= beta) {
+                    nAspirationFailHighs++;
+                    window *= ASPIRATION_WIDENING;
+                    beta = window > MAX_ASPIRATION_WINDOW ? Double.MAX_VALUE : bestEvaluation + window;
+                } else {
+                    break;
+                }
+            }
+            bestMove = resultMove;
+            bestEvaluation = resultEvaluation;
+            reachedDepth = searchDepth;
+
+            if (useTimeBudget) {
+                deadline = startTime + TIME_BUDGETS[maxPlayer.getDifficulty().ordinal()];
+            }
+            if (System.currentTimeMillis() > deadline) {
+                break;
+            }
         }
+        //the best move of the first iteration so far, or any move if it did not even get that far
+        if (bestMove == null) {
+            if (resultMove == null) {
+                resultMove = possibleMoves.getFirst();
+            }
+            bestMove = resultMove;
+            bestEvaluation = resultEvaluation;
+        }
+        resultMove = bestMove;
+        resultEvaluation = bestEvaluation;
 
-        for (int i = 0; i < nThreads; i++) {
-           //runnables need to know which move was chosen
-           runnables[i].setPreviousMove(resultMove);
+        long nProbes = 0;
+        long nHits = 0;
+        nTablebaseHits = 0;
+        for (StrategyRunnable runnable : allRunnables()){
+            nProbes += runnable.nProbes;
+            nHits += runnable.nHits;
+            nTablebaseHits += runnable.nTablebaseHits;
         }
+        transpositionTableHitRate = nProbes > 0 ? (double) nHits / nProbes : 0;
+        Log.d("Strategy", "depth " + reachedDepth + " of " + maxDepth + " in " + (System.currentTimeMillis() - startTime)
+                + " ms, transposition table: " + nHits + " hits in " + nProbes + " probes, aspiration window missed: "
+                + nAspirationFailHighs + " times too low, " + nAspirationFailLows + " times too high, endgame tablebase: "
+                + nTablebaseHits + " hits");
+
+        setPreviousMove(resultMove);
 
         up.reset();
 
         return resultMove;
     }
 
+    //the move leading to the best result of the tablebase, or null if it does not have all of them. The moves are
+    //shuffled, so the bot does not always choose the same one of equally good moves
+    private Move tablebaseMove(LinkedList<Move> possibleMoves) {
+        EndgameTablebase tablebase = this.tablebase;
+        int color = GameBoard.colorIndex(maxPlayer.getColor());
+        int moverPieces = snapshot.getPieces(color);
+        int otherPieces = snapshot.getPieces(1 - color);
+        int moverSetCount = snapshot.getSetCount(color);
+        int otherSetCount = snapshot.getSetCount(1 - color);
+        int result = tablebase.probe(moverPieces, otherPieces, moverSetCount, otherSetCount);
+        if (result == EndgameTablebase.UNKNOWN) {
+            return null;
+        }
+        Move bestMove = null;
+        double bestEvaluation = -Double.MAX_VALUE;
+        for (Move move : possibleMoves) {
+            int next = tablebase.probeMove(moverPieces, otherPieces, moverSetCount, otherSetCount, gameBoard.toPackedMove(move));
+            if (next == EndgameTablebase.UNKNOWN) {
+                return null;
+            }
+            double evaluation = -StrategyRunnable.tablebaseEvaluation(next);
+            if (evaluation > bestEvaluation) {
+                bestMove = move;
+                bestEvaluation = evaluation;
+            }
+        }
+        resultEvaluation = StrategyRunnable.tablebaseEvaluation(result);
+        return bestMove;
+    }
+
+    //the result the last search stored for the current position. It was two moves deeper in that search, after the move
+    //of the bot in previousPosition and the one the other player replied with, so it is stored with the keys of the mills
+    //these two moves prevented. Returns null if the current position does not follow from previousPosition this way
+    private TranspositionTable.Entry previousResult(GameBoardSnapshot previousPosition, Move previousMove) {
+        if (previousPosition == null || previousMove == null) {
+            return null;
+        }
+        GameBoard previousBoard = gameBoard.getCopy();
+        Player bot = new Player(maxPlayer.getColor());
+        Player other = new Player(maxPlayer.getOtherPlayer().getColor());
+        bot.setOtherPlayer(other);
+        other.setOtherPlayer(bot);
+        int color = GameBoard.colorIndex(maxPlayer.getColor());
+        bot.setSetCount(previousPosition.getSetCount(color));
+        other.setSetCount(previousPosition.getSetCount(1 - color));
+        previousBoard.restore(previousPosition);
+        if (!previousBoard.possibleMoves(bot).contains(previousMove)) {
+            return null;
+        }
+        previousBoard.executeCompleteTurn(previousMove, bot);
+        long key = snapshot.getKey();
+        if (previousBoard.preventedMill(previousMove.getDest(), bot)) {
+            key ^= StrategyRunnable.SECOND_LAST_MOVE_PREVENTED_MILL_KEY;
+        }
+        //the other player set or moved a piece to the only point it has a piece on now, but not after the move of the bot
+        int dest = snapshot.getPieces(1 - color) & ~previousBoard.getPieces(1 - color);
+        if (Integer.bitCount(dest) != 1 || snapshot.getSetCount(color) != bot.getSetCount()) {
+            return null;
+        }
+        if (gameBoard.preventedMill(Integer.numberOfTrailingZeros(dest), maxPlayer.getOtherPlayer())) {
+            key ^= StrategyRunnable.LAST_MOVE_PREVENTED_MILL_KEY;
+        }
+        TranspositionTable.Entry entry = new TranspositionTable.Entry();
+        if (transpositionTable.probe(key, entry) && entry.bound == TranspositionTable.EXACT && entry.move != TranspositionTable.NO_MOVE) {
+            return entry;
+        }
+        return null;
+    }
+
+    //searches all moves with the depth of the current iteration and returns false if the time was up before
+    //resultMove is only set if a move is evaluated better than alpha. The search of the moves stops if one is beta or better
+    private boolean searchRoot(LinkedList<Move> possibleMoves, Move firstMove, double alpha, double beta) throws InterruptedException {
+
+        rootMoves = new LinkedList<Move>(possibleMoves);
+        //the moves that were evaluated better in the last iteration are probably better again
+        final HashMap<Move, Double> scores = new HashMap<Move, Double>(rootScores);
+        Collections.sort(rootMoves, new Comparator<Move>() {
+            @Override
+            public int compare(Move m1, Move m2) {
+                return Double.compare(score(m2), score(m1));
+            }
+
+            private double score(Move move) {
+                Double score = scores.get(move);
+                return score != null ? score : -Double.MAX_VALUE;
+            }
+        });
+        //the best move of the last iteration is probably the best one again, so search it first
+        if (firstMove != null) {
+            rootMoves.remove(firstMove);
+            rootMoves.addFirst(firstMove);
+        }
+        possibleMovesKickoff = rootMoves.toArray(new Move[rootMoves.size()]);
+        nextMoveKickoff.set(0);
+
+        up.reset();
+        up.setMax(nPossibleMovesKickoff);
+
+        rootResult.set(new RootResult(null, alpha));
+        rootAlpha = alpha;
+        betaKickoff = beta;
+        stopHelpers = false;
+        nSearches++;
+        boolean complete;
+        if (parallelism == Parallelism.YOUNG_BROTHERS_WAIT) {
+            searchRootWithForkJoinPool();
+            complete = !runnables[0].timedOut;
+        } else {
+            complete = searchRootWithWorkers();
+        }
+        RootResult result = rootResult.get();
+        resultMove = result.move;
+        //not StrategyRunnable.MIN as StrategyRunnable.MIN might be multiplied in evaluation and thus is not the minimal possible number
+        resultEvaluation = result.move != null ? result.evaluation : -Double.MAX_VALUE;
+        return complete;
+    }
+
+    private boolean searchRootWithWorkers() throws InterruptedException {
+        //the first runnable is run by this thread, so the workers of the pool never wait for each other
+        for (int i = 1; i < nThreads; i++) {
+            futures[i] = SearchWorkerPool.executor().submit(runnables[i]);
+        }
+        runnables[0].run();
+        //the runnable only tells that it was interrupted by the interrupted flag of the thread
+        if (Thread.interrupted()) {
+            throw new InterruptedException("Computation of Bot " + maxPlayer + " was interrupted!");
+        }
+        //in lazy smp only the first thread counts, and the helpers are not needed any more as soon as it is done
+        boolean timedOut = runnables[0].timedOut;
+        if (parallelism == Parallelism.LAZY_SMP) {
+            stopHelpers = true;
+        }
+        for (int i = 1; i < nThreads; i++){
+            try {
+                futures[i].get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+            if (parallelism != Parallelism.LAZY_SMP) {
+                timedOut |= runnables[i].timedOut;
+            }
+        }
+        return !timedOut;
+    }
+
+    //only used for YOUNG_BROTHERS_WAIT, which can only be chosen from API 21 on
+    @SuppressLint("NewApi")
+    private void searchRootWithForkJoinPool() throws InterruptedException {
+        //the first runnable searches the root, but it has to run in the pool to be able to fork tasks
+        try {
+            SearchWorkerPool.forkJoinPool().submit(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    runnables[0].run();
+                }
+            }).get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    StrategyRunnable acquireSearcher() {
+        synchronized (freeSearchers) {
+            if (freeSearchers.isEmpty()) {
+                StrategyRunnable searcher = new StrategyRunnable(gameBoard, maxPlayer, up, this, nThreads + searchers.size());
+                searcher.setPreviousMove(runnables[0].getPreviousMove());
+                searchers.add(searcher);
+                return searcher;
+            }
+            return freeSearchers.removeFirst();
+        }
+    }
+
+    void releaseSearcher(StrategyRunnable searcher) {
+        synchronized (freeSearchers) {
+            freeSearchers.addFirst(searcher);
+        }
+    }
+
+    //starts computing the moves for all possible moves of the other player in the background. It has to be called
+    //while the gameboard does not change, but only reads it at the beginning. The move the last search expected
+    //is pondered first, as the other player probably makes it
+    void startPondering() {
+        if (ponderer == null) {
+            ponderBoard = gameBoard.getCopy();
+            Player bot = new Player(maxPlayer.getColor());
+            Player other = new Player(maxPlayer.getOtherPlayer().getColor());
+            bot.setOtherPlayer(other);
+            other.setOtherPlayer(bot);
+            ponderer = new Strategy(ponderBoard, bot, new ProgressUpdater(), nThreads, false, transpositionTable);
+        }
+        final Player bot = ponderer.maxPlayer;
+        final Player other = bot.getOtherPlayer();
+        bot.setDifficulty(maxPlayer.getDifficulty());
+        bot.setSetCount(maxPlayer.getSetCount());
+        other.setSetCount(maxPlayer.getOtherPlayer().getSetCount());
+        final GameBoardSnapshot position = gameBoard.snapshot(maxPlayer.getOtherPlayer());
+        ponderBoard.restore(position);
+        ponderer.parallelism = parallelism;
+        ponderer.tablebase = tablebase;
+        //the ponderer continues the game of the bot, so its last search is the one of the bot
+        final GameBoardSnapshot previousPosition = snapshot;
+        final Move previousMove = runnables[0].getPreviousMove();
+        ponderer.cancellation.reset();
+        ponderResults.clear();
+        pondering = SearchWorkerPool.ponderExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ponder(position, bot, other, previousPosition, previousMove);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
+    private void ponder(GameBoardSnapshot position, Player bot, Player other, GameBoardSnapshot previousPosition, Move previousMove)
+            throws InterruptedException {
+        int botSetCount = bot.getSetCount();
+        int otherSetCount = other.getSetCount();
+        LinkedList<Move> moves = ponderBoard.possibleMoves(other);
+        Move predicted = predictedMove(moves);
+        if (predicted != null) {
+            moves.remove(predicted);
+            moves.addFirst(predicted);
+        }
+        for (Move move : moves) {
+            ponderBoard.restore(position);
+            bot.setSetCount(botSetCount);
+            other.setSetCount(otherSetCount);
+            ponderBoard.executeCompleteTurn(move, other);
+            if (!ponderBoard.getState(bot).equals(GameBoard.GameState.RUNNING)) {
+                continue;
+            }
+            ponderer.snapshot = previousPosition;
+            ponderer.setPreviousMove(previousMove);
+            Move result = ponderer.computeMove();
+            if (ponderer.cancellation.isCancelled()) {
+                return;
+            }
+            ponderResults.put(ponderer.snapshot.getKey(), new PonderResult(result, ponderer.resultEvaluation, ponderer.reachedDepth));
+        }
+    }
+
+    //the best move of the other player the last search stored in the transposition table for the position after its move.
+    //It is stored with or without the key of the prevented mill, depending on the move of the bot
+    private Move predictedMove(LinkedList<Move> moves) {
+        TranspositionTable.Entry entry = new TranspositionTable.Entry();
+        long key = ponderBoard.getKey();
+        if (!transpositionTable.probe(key, entry) && !transpositionTable.probe(key ^ StrategyRunnable.LAST_MOVE_PREVENTED_MILL_KEY, entry)) {
+            return null;
+        }
+        for (Move move : moves) {
+            if (ponderBoard.toPackedMove(move) == entry.move) {
+                return move;
+            }
+        }
+        return null;
+    }
+
+    //stops pondering as soon as possible, without waiting for it
+    void stopPondering() {
+        if (ponderer != null) {
+            ponderer.cancellation.cancel();
+        }
+    }
+
+    //stops pondering and waits until it is stopped
+    private void finishPondering() throws InterruptedException {
+        if (pondering == null) {
+            return;
+        }
+        stopPondering();
+        try {
+            pondering.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        pondering = null;
+    }
+
+    //waits until all possible moves of the other player are pondered
+    @VisibleForTesting
+    void waitForPondering() throws InterruptedException {
+        try {
+            pondering.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    //stops the current and all later searches of this strategy within a few milliseconds.
+    //computeMove then returns the best move found so far
+    void cancel() {
+        cancellation.cancel();
+        stopPondering();
+    }
+
     @VisibleForTesting
     public LinkedList<Move> shuffleListOfPossMoves(){
 
@@ -93,12 +622,65 @@ public class Strategy {
         return resultEvaluation;
     }
 
+    @VisibleForTesting
+    public double getTranspositionTableHitRate() {
+        return transpositionTableHitRate;
+    }
+
+    @VisibleForTesting
+    public int getReachedDepth() {
+        return reachedDepth;
+    }
+
+    @VisibleForTesting
+    public int getAspirationFailHighs() {
+        return nAspirationFailHighs;
+    }
+
+    @VisibleForTesting
+    public int getAspirationFailLows() {
+        return nAspirationFailLows;
+    }
+
+    @VisibleForTesting
+    public int getReusedSearches() {
+        return nReusedSearches;
+    }
+
+    @VisibleForTesting
+    public int getPonderHits() {
+        return nPonderHits;
+    }
+
+    @VisibleForTesting
+    public long getTablebaseHits() {
+        return nTablebaseHits;
+    }
+
+    void setTablebase(EndgameTablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    @VisibleForTesting
+    public void setParallelism(Parallelism parallelism) {
+        this.parallelism = parallelism;
+    }
+
     @VisibleForTesting
     public void setPreviousMove(Move move) {
-        for (int i = 0; i < nThreads; i++) {
+        for (StrategyRunnable runnable : allRunnables()) {
             //runnables need to know which move was chosen
-            runnables[i].setPreviousMove(move);
+            runnable.setPreviousMove(move);
+        }
+    }
+
+    private LinkedList<StrategyRunnable> allRunnables() {
+        LinkedList<StrategyRunnable> all = new LinkedList<StrategyRunnable>();
+        Collections.addAll(all, runnables);
+        synchronized (freeSearchers) {
+            all.addAll(searchers);
         }
+        return all;
     }
     
 }
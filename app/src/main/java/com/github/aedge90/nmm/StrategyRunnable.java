@@ -1,15 +1,22 @@
 package com.github.aedge90.nmm;
 
-import java.util.LinkedList;
-
+import android.annotation.SuppressLint;
 import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeoutException;
+
 public class StrategyRunnable implements Runnable{
 
-    //runnable will only work with local copies of the global gameboard and player objects
-    private final GameBoard globalGameBoard;
-    private GameBoard localGameBoard;
+    //runnable will only work with its own gameboard and player objects, which are set to the snapshot
+    //of the game state shared by all threads at the beginning of every computation
+    private final GameBoard localGameBoard;
     private final Player globalMaxPlayer;
     private Player localMaxPlayer;
 
@@ -18,36 +25,107 @@ public class StrategyRunnable implements Runnable{
     //not Int.Max as the evaluation function would create overflows
     static final double MAX = (int) Math.pow(2,25);
     static final double MIN = - (int) Math.pow(2,25);
-    private LinkedList<Move> movesToEvaluate;
+    //evaluations beyond WON mean that one of the players has won. Every move until the end of the game takes STEP
+    //from the evaluation, so winning after fewer moves and loosing after more moves is evaluated better
+    static final double WON = MAX / 2;
+    static final double STEP = 16;
+    //the moves from the root to the current node, the evaluation of each of them and if it prevented a mill
+    static final int MAX_PLY = 64;
+    //how many moves the quiescence search may add to the depth of the difficulty
+    static final int MAX_QUIESCENCE_PLY = 4;
+    //for every difficulty: from which depth on quiet moves are searched with less depth, and by how much less.
+    //The easier difficulties do not search deep enough for this. The others were chosen by comparing the moves and
+    //nodes with the ones of the search without reductions, on positions of random games. The moves of HARD changed
+    //more often when reducing from depth 3 on than the ones of HARDER, and HARDEST, which is slow enough to run out
+    //of time on small devices, needs half the nodes reducing by 2 from depth 4 on and changes hardly more moves
+    private static final int[] LMR_MIN_DEPTHS = {4, 4, 4, 3, 4, 3, 4};
+    private static final int[] LMR_REDUCTIONS = {1, 1, 1, 1, 1, 1, 2};
+    private int lmrMinDepth;
+    private int lmrReduction;
+    private final int[] movesToEvaluate = new int[MAX_PLY];
+    private final double[] moveEvaluations = new double[MAX_PLY];
+    private final boolean[] preventedMills = new boolean[MAX_PLY];
+    private int nMovesToEvaluate;
+    //one buffer for the possible moves of every ply, so the search does not allocate any moves
+    private final int[][] possibleMoves = new int[MAX_PLY][];
     private Move prevMove;
+    private int packedPrevMove;
 
     private final int threadNr;
     private int startDepth;
+    //if it only searches to help the first thread in lazy smp
+    private boolean helper;
+    //young brothers wait: nodes with at least this depth search their first move and then all others in parallel
+    private static final int SPLIT_MIN_DEPTH = 3;
+    private boolean splitting;
+    //the node whose move this runnable searches as a task, if any
+    private YoungBrothersWaitTask.SplitPoint splitPoint;
+    //the search of the strategy this runnable was last prepared for
+    private int nSearches;
+    //if the nodes below the root use the best evaluation any thread found at the root so far (see sharedBeta),
+    //and the undo penalty of the root move that is searched
+    private boolean sharingAlpha;
+    private double rootPenalty;
+
+    //the evaluation of a node also depends on whether the last two moves leading to it prevented a mill,
+    //so this is part of the key it is stored with in the transposition table
+    static final long LAST_MOVE_PREVENTED_MILL_KEY = 0x5bd1e9955bd1e995L;
+    static final long SECOND_LAST_MOVE_PREVENTED_MILL_KEY = 0x27d4eb2f165667c5L;
+    private final TranspositionTable.Entry entry = new TranspositionTable.Entry();
+    long nProbes;
+    long nHits;
+    long nTablebaseHits;
+
+    //the clock, the cancellation and whether the thread was interrupted are only checked every few nodes,
+    //as they are not for free. It takes well below a millisecond to search that many nodes
+    private static final int NODES_PER_TIME_CHECK = 1024;
+    private int nNodes;
+    //set if the last search was stopped, as the time of the bot ran out
+    boolean timedOut;
+
+    //move ordering of the moves that do not kill: the last two moves of every ply that caused a cutoff (killer moves)
+    //and how often a move from one point to another caused a cutoff in the whole search (history)
+    private final int[][] killerMoves = new int[MAX_PLY][2];
+    //indexed by the source plus one (moves of the set phase have none) and the destination of a move
+    private final int[] history = new int[33 * 32];
+    private final int[] moveScores = new int[GameBoard.MAX_MOVES];
 
     StrategyRunnable(final GameBoard gameBoard, final Player maxPlayer, final ProgressUpdater up, Strategy strategy, final int threadNr) {
-        this.globalGameBoard = gameBoard;
+        this.localGameBoard = gameBoard.getCopy();
         this.globalMaxPlayer = maxPlayer;
         this.strategy = strategy;
         this.up = up;
-        this.movesToEvaluate = new LinkedList<Move>();
         this.threadNr = threadNr;
     }
 
     public void updateState(){
-        //copy these so every thread has its own one to avoid concurrency problems
-        this.localGameBoard = globalGameBoard.getCopy();
-        //copy BOTH!!! the maxPlayer and the other player
-        this.localMaxPlayer = new Player(globalMaxPlayer);
-        Player other = new Player(globalMaxPlayer.getOtherPlayer());
-        other.setOtherPlayer(localMaxPlayer);
-        this.localMaxPlayer.setOtherPlayer(other);
+        restore(strategy.snapshot);
+    }
+
+    private void restore(GameBoardSnapshot snapshot){
+        localGameBoard.restore(snapshot);
+        nMovesToEvaluate = 0;
+        //the search changes the set counts of the players, so every thread needs its own ones
+        if(localMaxPlayer == null) {
+            localMaxPlayer = new Player(globalMaxPlayer.getColor());
+            Player other = new Player(globalMaxPlayer.getOtherPlayer().getColor());
+            other.setOtherPlayer(localMaxPlayer);
+            localMaxPlayer.setOtherPlayer(other);
+        }
+        localMaxPlayer.setDifficulty(globalMaxPlayer.getDifficulty());
+        int color = GameBoard.colorIndex(localMaxPlayer.getColor());
+        localMaxPlayer.setSetCount(snapshot.getSetCount(color));
+        localMaxPlayer.getOtherPlayer().setSetCount(snapshot.getSetCount(1 - color));
     }
 
     @Override
     public void run() {
         try {
+            timedOut = false;
             updateState();
             computeMove();
+        }catch ( TimeoutException e ) {
+            timedOut = true;
         }catch ( InterruptedException e ) {
             Log.d("computeMove Thread " + threadNr, "Interrupted!");
             e.printStackTrace();
@@ -55,75 +133,83 @@ public class StrategyRunnable implements Runnable{
         }
     }
 
-    // maximizing player has got to return higher values for better situations
-    // minimizing player has got to return lower values the better his situation
-    @VisibleForTesting
-    double evaluation(Player player, boolean isAnyMovePossible, int depth) {
-        
+    // evaluations are always from the view of the player to move, higher values for better situations
+    // the evaluations of the moves of a path are added up while returning from the search (see combine),
+    // so the end of a path is evaluated as 0 unless the game is over
+    double evaluation(boolean isAnyMovePossible) {
+
         double ret = 0;
 
         if (!isAnyMovePossible) {
-            if(movesToEvaluate.size() > 1) {
-                localGameBoard.reverseCompleteTurn(movesToEvaluate.getLast(), player.getOtherPlayer());
-                //check if the loosing player, prevented a mill in his last move (which is the size-2th move)
-                if (localGameBoard.preventedMill(movesToEvaluate.get(movesToEvaluate.size() - 2).getDest(), player)) {
-                    //evaluate this better, as it looks stupid if he does not try to prevent one mill even if the other player
-                    //can close another mill despite that
-                    ret = 1;
-                }
-                localGameBoard.executeCompleteTurn(movesToEvaluate.getLast(), player.getOtherPlayer());
+            //check if the loosing player, prevented a mill in his last move (which is the size-2th move)
+            if (nMovesToEvaluate > 1 && preventedMills[nMovesToEvaluate - 2]) {
+                //evaluate this better, as it looks stupid if he does not try to prevent one mill even if the other player
+                //can close another mill despite that
+                ret = 1;
             }
             //worst case: player can not make any moves --> game is lost
             //or player has less than 3 pieces and has no pieces left to set --> game is lost
-            if (player.equals(localMaxPlayer)) {
-                //multiply with an number (which is >= 1) depending on depth
-                //necessary as the evaluation has to be higher if the player can win after fewer moves
-                //you may think depth is always 0 here, but it can be higher
-                ret = MIN * (depth + 1) + ret;
-            }else{
-                ret = MAX * (depth + 1) - ret;
-            }
-            return ret;
-        }
-
-        //evaluate how often the players can kill, and prefer kills that are in the near future
-        int i = 0;
-        double weight = 1;
-        // it is important that never a evaluation of a subsequent move is better than the one of the current move
-        // a then this path will be chosen, but it contains a move that may not be good
-        for(Move move : movesToEvaluate){
-            if(i % 2 == 0) {    //even numbers are moves of the maximizing player
-                ret += move.getEvaluation() / weight;
-            }else{
-                ret -= move.getEvaluation() / weight;
-            }
-            weight = weight*10;
-            i++;
+            ret = MIN + ret;
+        }
+
+        return ret;
+
+    }
+
+    //evaluates a node by the evaluation of the move leading to it and the evaluation of the best path after it (rest),
+    //both from the view of the player who made the move
+    //evaluate how often the players can kill, and prefer kills that are in the near future
+    // it is important that never a evaluation of a subsequent move is better than the one of the current move
+    // a then this path will be chosen, but it contains a move that may not be good
+    static double combine(double moveEvaluation, double rest) {
+        if (rest >= WON) {
+            return rest - STEP;
+        }
+        if (rest <= -WON) {
+            return rest + STEP;
+        }
+        return moveEvaluation + rest / 10;
+    }
+
+    //returns the bound of rest that corresponds to the bound of the evaluation of combine
+    //it is widened a tiny bit, as dividing by 10 and multiplying by 10 may not give exactly the same number
+    static double restBound(double moveEvaluation, double bound, boolean upper) {
+        double rest;
+        if (bound >= WON - STEP) {
+            rest = bound + STEP;
+        } else if (bound <= -WON + STEP) {
+            rest = bound - STEP;
+        } else {
+            rest = Math.max(-WON, Math.min(WON, (bound - moveEvaluation) * 10));
         }
+        double margin = 0.000000001 * (1 + Math.abs(rest));
+        return upper ? rest + margin : rest - margin;
+    }
 
-        //evaluate undoing a move, as its probably of no use. If it is, the other evaluation should overwrite this
-        //this should break endless undoing and redoing of moves if all have the same evaluation so far
+    //evaluate undoing a move, as its probably of no use. If it is, the other evaluation should overwrite this
+    //this should break endless undoing and redoing of moves if all have the same evaluation so far
+    private double undoPenalty(int firstMove) {
         if(prevMove != null){
             // closing and opening a mill should not be downgraded. Ignore setting phase
-            if (prevMove.getKill() != null || movesToEvaluate.get(0).getKill() != null || prevMove.getSrc() == null){
+            if (PackedMove.kill(packedPrevMove) != PackedMove.NONE || PackedMove.kill(firstMove) != PackedMove.NONE
+                    || PackedMove.src(packedPrevMove) == PackedMove.NONE){
                 //do nothing
-            }else if (prevMove.getSrc().equals(movesToEvaluate.get(0).getDest())
-                    && prevMove.getDest().equals(movesToEvaluate.get(0).getSrc())) {
-                ret -= 1;
+            }else if (PackedMove.src(packedPrevMove) == PackedMove.dest(firstMove)
+                    && PackedMove.dest(packedPrevMove) == PackedMove.src(firstMove)) {
+                return 1;
             }
         }
-
-        return ret;
-
+        return 0;
     }
 
-    private void evaluateMove(Move move, Player player) {
+    private double evaluateMove(int move, Player player, boolean preventedMill) {
 
+        int dest = PackedMove.dest(move);
         double eval = 0;
         // evaluate having more space to move better, as it is an important strategy in merels
-        eval += localGameBoard.nEmptyNeighbors(move.getDest())*0.0000001;
+        eval += localGameBoard.nEmptyNeighbors(dest)*0.0000001;
 
-        if (move.getKill() != null) {
+        if (PackedMove.kill(move) != PackedMove.NONE) {
             // next weight will be half the weight
             // this has to be done so players wont do the same move over and over again
             // as they would not choose a path in which they kill but the other player kills in a
@@ -132,148 +218,606 @@ public class StrategyRunnable implements Runnable{
             // also this prefers kills in the near future, so they are done now and not later
             // as could be the case if all were weighted equally
             eval += 9;
-            move.setEvaluation(eval);
             //return as the other cases should not return true if its a kill move
-            return;
+            return eval;
         }
-        if(localGameBoard.preventedMill(move.getDest(), player)){
+        if(preventedMill){
             eval += 5;
         }
         if(player.getOtherPlayer().getSetCount() >= 1){
-            int n = localGameBoard.isInNPotentialMills(move.getDest(), player.getOtherPlayer().getColor());
+            int n = localGameBoard.isInNPotentialMills(dest, player.getOtherPlayer().getColor());
                 if(n >= 2){
                     eval += 4;          // do only prevent two potential mills, preventing every single one lead
                 }                       // to a bot that does only prevent but not form own mills
         }
         if(player.getSetCount() >= 1){
-            int n = localGameBoard.isInNPotentialMills(move.getDest(), player.getColor());
+            int n = localGameBoard.isInNPotentialMills(dest, player.getColor());
             if(n > 0) {
                 // evaluate having a potential future mill better, as otherwise the bot will just randomly place pieces
                 // this causes the bot to be weaker especially on bigger gameboards as he does not really try to build a mill.
                 eval += 2*n;
             }
         }
-        move.setEvaluation(eval);
+        return eval;
+    }
+
+    private void executeMove(int move, Player player) {
+        localGameBoard.executeCompleteTurn(move, player);
+        movesToEvaluate[nMovesToEvaluate] = move;
+        preventedMills[nMovesToEvaluate] = localGameBoard.preventedMill(PackedMove.dest(move), player);
+        moveEvaluations[nMovesToEvaluate] = evaluateMove(move, player, preventedMills[nMovesToEvaluate]);
+        nMovesToEvaluate++;
+    }
+
+    private void reverseMove(int move, Player player) {
+        nMovesToEvaluate--;
+        localGameBoard.reverseCompleteTurn(move, player);
+    }
+
+    //the buffers are only allocated once per thread and then reused for every move the bot computes
+    private int[] possibleMovesBuffer() {
+        if(possibleMoves[nMovesToEvaluate] == null){
+            possibleMoves[nMovesToEvaluate] = new int[GameBoard.MAX_MOVES];
+        }
+        return possibleMoves[nMovesToEvaluate];
+    }
+
+    private long positionKey() {
+        long key = localGameBoard.getKey();
+        if(nMovesToEvaluate > 0 && preventedMills[nMovesToEvaluate - 1]){
+            key ^= LAST_MOVE_PREVENTED_MILL_KEY;
+        }
+        if(nMovesToEvaluate > 1 && preventedMills[nMovesToEvaluate - 2]){
+            key ^= SECOND_LAST_MOVE_PREVENTED_MILL_KEY;
+        }
+        return key;
+    }
+
+    //returns true if the transposition table contains an evaluation for this node that makes searching it unnecessary.
+    //It has to be of exactly the same depth, so the result of the search does not depend on which results
+    //the other threads have stored so far.
+    //Otherwise the moves are ordered and a move stored for the node, even by a previous iteration, is moved to the front
+    private boolean probe(long key, int depth, double alpha, double beta, int[] moves, int nMoves) {
+        nProbes++;
+        boolean found = strategy.transpositionTable.probe(key, entry);
+        if(found){
+            nHits++;
+            if(entry.depth == depth){
+                if(entry.bound == TranspositionTable.EXACT
+                        || (entry.bound == TranspositionTable.LOWER && entry.evaluation >= beta)
+                        || (entry.bound == TranspositionTable.UPPER && entry.evaluation <= alpha)){
+                    return true;
+                }
+            }
+        }
+        orderMoves(moves, nMoves);
+        if(found && entry.move != TranspositionTable.NO_MOVE) {
+            for (int i = 1; i < nMoves; i++) {
+                if (moves[i] == entry.move) {
+                    System.arraycopy(moves, 0, moves, 1, i);
+                    moves[0] = entry.move;
+                    break;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int historyIndex(int move) {
+        return ((PackedMove.src(move) + 1) << 5) | PackedMove.dest(move);
+    }
+
+    //sorts the moves that do not kill, which come after the kill moves, by killer moves first and then by history
+    private void orderMoves(int[] moves, int nMoves) {
+        int[] killers = killerMoves[nMovesToEvaluate];
+        int first = 0;
+        while (first < nMoves && PackedMove.kill(moves[first]) != PackedMove.NONE) {
+            first++;
+        }
+        for (int i = first; i < nMoves; i++) {
+            int move = moves[i];
+            int score;
+            if (move == killers[0]) {
+                score = Integer.MAX_VALUE;
+            } else if (move == killers[1]) {
+                score = Integer.MAX_VALUE - 1;
+            } else {
+                score = history[historyIndex(move)];
+            }
+            //insertion sort, as there are only a few moves and it keeps the order of moves with the same score
+            int j = i;
+            while (j > first && moveScores[j - 1] < score) {
+                moves[j] = moves[j - 1];
+                moveScores[j] = moveScores[j - 1];
+                j--;
+            }
+            moves[j] = move;
+            moveScores[j] = score;
+        }
+    }
+
+    private void updateMoveOrdering(int move, int depth) {
+        if (PackedMove.kill(move) != PackedMove.NONE) {
+            return;
+        }
+        int[] killers = killerMoves[nMovesToEvaluate];
+        if (killers[0] != move) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+        history[historyIndex(move)] += depth * depth;
+    }
+
+    //killer moves and history of the last computed move are of no use,
+    //but the history of older iterations of the same move is still used, but weighted less
+    private void resetMoveOrdering() {
+        if (startDepth == 1) {
+            for (int[] killers : killerMoves) {
+                killers[0] = TranspositionTable.NO_MOVE;
+                killers[1] = TranspositionTable.NO_MOVE;
+            }
+            Arrays.fill(history, 0);
+        } else {
+            for (int i = 0; i < history.length; i++) {
+                history[i] /= 2;
+            }
+        }
+    }
+
+    private void store(long key, int depth, double alpha, double beta, double evaluation, int bestMove) {
+        int bound = TranspositionTable.EXACT;
+        if(evaluation <= alpha){
+            bound = TranspositionTable.UPPER;
+        }else if(evaluation >= beta){
+            bound = TranspositionTable.LOWER;
+        }
+        strategy.transpositionTable.store(key, startDepth, depth, bound, evaluation, bestMove);
+    }
+
+    private void checkInterruptedOrTimeUp(Player player) throws InterruptedException, TimeoutException {
+        nNodes++;
+        if(nNodes % NODES_PER_TIME_CHECK == 0){
+            if(Thread.interrupted()){
+                throw new InterruptedException("Computation of Bot " + player + " was interrupted!");
+            }
+            if(strategy.cancellation.isCancelled()){
+                throw new TimeoutException("Search of Bot " + player + " was cancelled!");
+            }
+            if(System.currentTimeMillis() > strategy.deadline){
+                throw new TimeoutException("Time of Bot " + player + " is up!");
+            }
+            if(helper && strategy.stopHelpers){
+                throw new TimeoutException("Search of Bot " + player + " is not needed any more!");
+            }
+            if(splitPoint != null && splitPoint.isCutoff()){
+                throw new TimeoutException("Search of Bot " + player + " is not needed any more!");
+            }
+        }
     }
 
-    private double max(int depth, double alpha, double beta, Player player, int nPrevPossMoves) throws InterruptedException {
-        if(Thread.interrupted()){
-            throw new InterruptedException("Computation of Bot " + player + " was interrupted!");
+    //negamax search with principal variation search. The first move is searched with the full window,
+    //all other ones only have to show that they are not better than the best move so far (null window),
+    //and are only searched again with the full window if they are
+    private double negamax(int depth, double alpha, double beta, Player player) throws InterruptedException, TimeoutException {
+        checkInterruptedOrTimeUp(player);
+        int result = probeTablebase(player);
+        if (result != EndgameTablebase.UNKNOWN) {
+            nTablebaseHits++;
+            return tablebaseEvaluation(result);
         }
         if (depth <= 0){
-            return evaluation(player, localGameBoard.movesPossible(player), depth);
+            return quiescence(0, alpha, beta, player);
         }
-        LinkedList<Move> moves = localGameBoard.possibleMoves(player);
-        if (moves.size() == 0){
-            return evaluation(player, false, depth);
+        int[] moves = possibleMovesBuffer();
+        int nMoves = localGameBoard.possibleMoves(player, moves);
+        if (nMoves == 0){
+            return evaluation(false);
+        }
+        long key = positionKey();
+        if (probe(key, depth, alpha, beta, moves, nMoves)){
+            return entry.evaluation;
+        }
+        if (splitting && depth >= SPLIT_MIN_DEPTH && nMoves > 1){
+            return negamaxSplit(key, moves, nMoves, depth, alpha, beta, player);
         }
-        depth = lowerDepth (depth, nPrevPossMoves, moves.size());
         double maxWert = alpha;
-        for (Move z : moves) {
-            localGameBoard.executeCompleteTurn(z, player);
-            movesToEvaluate.addLast(z);
-            evaluateMove(z, player);
-            double wert = min(depth-1, maxWert, beta, player.getOtherPlayer(), moves.size());
-            movesToEvaluate.removeLast();
-            localGameBoard.reverseCompleteTurn(z, player);
+        int bestMove = TranspositionTable.NO_MOVE;
+        for (int i = 0; i < nMoves; i++) {
+            if (sharingAlpha && nMovesToEvaluate == 1) {
+                beta = sharedBeta(beta, maxWert);
+            }
+            int z = moves[i];
+            double wert = searchChild(z, i == 0, depth, maxWert, beta, player);
             if (wert > maxWert) {
                 maxWert = wert;
+                bestMove = z;
                 if (maxWert >= beta) {
+                    updateMoveOrdering(z, depth);
                     break;
                 }
             }
         }
+        store(key, depth, alpha, beta, maxWert, bestMove);
         return maxWert;
     }
 
-    //same as max, but slightly modified to distribute work among threads
-    private void maxKickoff(int depth, Player player) throws InterruptedException{
+    //the nodes after a root move are the answers of the other player. Once another thread found a better move at the root
+    //than the window of this root move was, the other player only has to show that his answer is better than that one,
+    //so his beta gets lower. It is only lowered as long as it stays above the best answer so far,
+    //so the bound stored in the transposition table is the one that was actually searched
+    private double sharedBeta(double beta, double maxWert) {
+        double alpha = strategy.rootResult.get().evaluation;
+        if (alpha > -WON + STEP && alpha < WON - STEP) {
+            alpha += rootPenalty;
+        }
+        double sharedBeta = -restBound(moveEvaluations[0], alpha, false);
+        if (sharedBeta < beta && sharedBeta > maxWert) {
+            return sharedBeta;
+        }
+        return beta;
+    }
 
-        while(true) {
+    //the result of the endgame tablebase for the position with player to move, UNKNOWN if it has no table for it
+    private int probeTablebase(Player player) {
+        EndgameTablebase tablebase = strategy.tablebase;
+        if (tablebase == null || player.getSetCount() != 0 || player.getOtherPlayer().getSetCount() != 0) {
+            return EndgameTablebase.UNKNOWN;
+        }
+        int color = GameBoard.colorIndex(player.getColor());
+        return tablebase.probe(localGameBoard.getPieces(color), localGameBoard.getPieces(1 - color));
+    }
 
-            Move z;
-            synchronized (strategy) {
-                if(strategy.possibleMovesKickoff.size() > 0) {
-                    z = strategy.possibleMovesKickoff.removeFirst();
-                }else{
-                    break;
-                }
+    //the evaluation of a position with the result of the endgame tablebase is the same as if it was searched
+    //until the end of the game: every move until then takes STEP from the evaluation
+    static double tablebaseEvaluation(int result) {
+        if (result == EndgameTablebase.DRAW) {
+            return 0;
+        }
+        int distance = EndgameTablebase.distance(result);
+        if (EndgameTablebase.isWin(result)) {
+            return MAX - STEP * distance;
+        }
+        return MIN + STEP * distance;
+    }
+
+    //searches the move z of a node with the given depth, given the best move so far has the evaluation alpha.
+    //Returns alpha if the move does not have to be searched
+    private double searchChild(int z, boolean firstMove, int depth, double alpha, double beta, Player player) throws InterruptedException, TimeoutException {
+        executeMove(z, player);
+        double e = moveEvaluations[nMovesToEvaluate - 1];
+        if (depth == 1 && e <= alpha && isFutile(player)) {
+            reverseMove(z, player);
+            return alpha;
+        }
+        double wert;
+        double rest = Double.MAX_VALUE;
+        if (depth >= lmrMinDepth && isReducible(z, e)) {
+            rest = searchReduced(e, depth - 1 - lmrReduction, alpha, beta, player.getOtherPlayer());
+        }
+        if (rest <= 0) {
+            wert = combine(e, rest);
+        } else if (firstMove) {
+            wert = searchMove(e, depth - 1, alpha, beta, player.getOtherPlayer());
+        } else {
+            wert = searchMove(e, depth - 1, alpha, Math.nextUp(alpha), player.getOtherPlayer());
+            if (wert > alpha && wert < beta) {
+                wert = searchMove(e, depth - 1, alpha, beta, player.getOtherPlayer());
             }
+        }
+        reverseMove(z, player);
+        return wert;
+    }
 
-            localGameBoard.executeCompleteTurn(z, player);
-            movesToEvaluate.addLast(z);
-            evaluateMove(z, player);
-            double wert = min(depth - 1, strategy.maxWertKickoff, Double.MAX_VALUE, player.getOtherPlayer(), strategy.nPossibleMovesKickoff);
-            movesToEvaluate.removeLast();
-            localGameBoard.reverseCompleteTurn(z, player);
-
-            synchronized (strategy) {
-                if (wert > strategy.maxWertKickoff) {
-                    strategy.maxWertKickoff = wert;
-                    strategy.resultMove = z;
-                    strategy.resultEvaluation = wert;
+    //young brothers wait: the first move is searched on its own, as it often causes a cutoff and otherwise
+    //gives the window for the other moves. They are then searched in parallel, every one as a task of its own
+    //only used for YOUNG_BROTHERS_WAIT, which can only be chosen from API 21 on
+    @SuppressLint("NewApi")
+    private double negamaxSplit(long key, int[] moves, int nMoves, int depth, double alpha, double beta, Player player) throws InterruptedException, TimeoutException {
+        double maxWert = alpha;
+        int bestMove = TranspositionTable.NO_MOVE;
+        double wert = searchChild(moves[0], true, depth, maxWert, beta, player);
+        if (wert > maxWert) {
+            maxWert = wert;
+            bestMove = moves[0];
+        }
+        if (maxWert < beta) {
+            YoungBrothersWaitTask.SplitPoint split = new YoungBrothersWaitTask.SplitPoint(splitPoint, beta);
+            GameBoardSnapshot snapshot = localGameBoard.snapshot(player);
+            boolean lastMovePreventedMill = nMovesToEvaluate > 0 && preventedMills[nMovesToEvaluate - 1];
+            boolean secondLastMovePreventedMill = nMovesToEvaluate > 1 && preventedMills[nMovesToEvaluate - 2];
+            List<YoungBrothersWaitTask> tasks = new ArrayList<YoungBrothersWaitTask>(nMoves - 1);
+            for (int i = 1; i < nMoves; i++) {
+                tasks.add(new YoungBrothersWaitTask(strategy, split, snapshot, nMovesToEvaluate, lastMovePreventedMill,
+                        secondLastMovePreventedMill, moves[i], null, depth, maxWert, beta));
+            }
+            ForkJoinTask.invokeAll(tasks);
+            for (YoungBrothersWaitTask task : tasks) {
+                if (task.aborted) {
+                    //the other tasks are only stopped on purpose if one of them caused a cutoff
+                    if (!split.isCutoffHere()) {
+                        throw new TimeoutException("Search of Bot " + player + " was stopped!");
+                    }
+                } else if (task.wert > maxWert) {
+                    maxWert = task.wert;
+                    bestMove = task.move;
                 }
             }
+        }
+        if (maxWert >= beta) {
+            updateMoveOrdering(bestMove, depth);
+        }
+        store(key, depth, alpha, beta, maxWert, bestMove);
+        return maxWert;
+    }
 
-            up.increment();
+    //searches the move of task, which has to be one of a node that is split in the young brothers wait search
+    double searchTask(YoungBrothersWaitTask task) throws InterruptedException, TimeoutException {
+        restore(task.snapshot);
+        nMovesToEvaluate = task.ply;
+        if (task.ply > 0) {
+            preventedMills[task.ply - 1] = task.lastMovePreventedMill;
+        }
+        if (task.ply > 1) {
+            preventedMills[task.ply - 2] = task.secondLastMovePreventedMill;
+        }
+        splitting = true;
+        splitPoint = task.split;
+        if (nSearches != strategy.nSearches) {
+            nSearches = strategy.nSearches;
+            helper = false;
+            prepareSearch();
+        }
+        Player player = localMaxPlayer;
+        if (GameBoard.colorIndex(player.getColor()) != task.snapshot.getSideToMove()) {
+            player = player.getOtherPlayer();
         }
+        if (task.rootMove != null) {
+            double wert = searchRootMove(task.rootMove, task.depth, task.alpha, task.beta, false, player);
+            reportRootMove(task.rootMove, wert);
+            return wert;
+        }
+        return searchChild(task.move, false, task.depth, task.alpha, task.beta, player);
+    }
+
+    //futility pruning: if player can not close a mill with his next move, the other player does not have to prevent one.
+    //So if he can move at all, he can at least stand pat in the quiescence search and the evaluation of the move
+    //that was just executed is at most its own evaluation. If this is not better than the best move so far, it can be skipped.
+    //The margin is 0 as this bound is exact. A move that could close a mill next is never pruned, as a kill can end
+    //the game and then no margin bounds its evaluation. Pruning with a guessed margin would make the evaluation depend
+    //on alpha, which is shared between the threads, so the result would depend on their number.
+    //If the tablebase knows the position after the move, it is not searched at all, so there is no stand pat
+    //and the move may win or lose the game. This happens after a kill or after the last piece was set
+    private boolean isFutile(Player player) {
+        return !localGameBoard.canCloseMill(player) && localGameBoard.movesPossible(player.getOtherPlayer())
+                && probeTablebase(player.getOtherPlayer()) == EndgameTablebase.UNKNOWN;
+    }
+
+    //quiet moves that neither kill, nor prevent or prepare a mill are searched with less depth (late move reduction)
+    private boolean isReducible(int move, double e) {
+        return PackedMove.kill(move) == PackedMove.NONE && !preventedMills[nMovesToEvaluate - 1] && e < 2;
     }
 
-    private double min(int depth, double alpha, double beta, Player player, int nPrevPossMoves) throws InterruptedException {
-        if(Thread.interrupted()){
-            throw new InterruptedException("Computation of Bot " + player + " was interrupted!");
+    //searches the move that was just executed with reduced depth and returns the evaluation of the rest of the path.
+    //Only if it gains anything (the rest is better than 0), it has to be searched again with the full depth.
+    //The evaluation does not depend on alpha and beta this way, so the result of the search does not depend on
+    //the number of threads, which share alpha at the root
+    private double searchReduced(double e, int depth, double alpha, double beta, Player otherPlayer) throws InterruptedException, TimeoutException {
+        double restAlpha = Math.min(restBound(e, alpha, false), 0);
+        double restBeta = Math.max(restBound(e, beta, true), Math.nextUp(0.0));
+        return -negamax(depth, -restBeta, -restAlpha, otherPlayer);
+    }
+
+    //the search does not stop in positions in which the player to move can kill or has to prevent a mill, as their
+    //evaluation would be far off. Only these moves are searched until the position is quiet.
+    //The player may stop there (stand pat) which is evaluated as 0, unless he has to prevent a mill
+    private double quiescence(int qPly, double alpha, double beta, Player player) throws InterruptedException, TimeoutException {
+        checkInterruptedOrTimeUp(player);
+        int[] moves = possibleMovesBuffer();
+        int nMoves = localGameBoard.possibleMoves(player, moves);
+        if (nMoves == 0){
+            return evaluation(false);
         }
-        if (depth <= 0){
-            return evaluation(player, localGameBoard.movesPossible(player), depth);
+        double standPat = evaluation(true);
+        if (qPly >= MAX_QUIESCENCE_PLY) {
+            return standPat;
         }
-        LinkedList<Move> moves = localGameBoard.possibleMoves(player);
-        if (moves.size() == 0){
-            return evaluation(player, false, depth);
+        int nForcingMoves = 0;
+        boolean mustPreventMill = false;
+        for (int i = 0; i < nMoves; i++) {
+            int z = moves[i];
+            if (PackedMove.kill(z) != PackedMove.NONE) {
+                moves[nForcingMoves++] = z;
+            } else if (localGameBoard.preventedMill(PackedMove.dest(z), player)) {
+                moves[nForcingMoves++] = z;
+                mustPreventMill = true;
+            }
         }
-        depth = lowerDepth (depth, nPrevPossMoves, moves.size());
-        double minWert = beta;
-        for (Move z : moves) {
-            localGameBoard.executeCompleteTurn(z, player);
-            movesToEvaluate.addLast(z);
-            evaluateMove(z, player);
-            double wert = max(depth-1, alpha, minWert, player.getOtherPlayer(), moves.size());
-            movesToEvaluate.removeLast();
-            localGameBoard.reverseCompleteTurn(z, player);
-            if (wert < minWert) {
-                minWert = wert;
-                if (minWert <= alpha){ 
+        if (nForcingMoves == 0) {
+            return standPat;
+        }
+        double maxWert = alpha;
+        if (!mustPreventMill) {
+            if (standPat >= beta) {
+                return standPat;
+            }
+            maxWert = Math.max(alpha, standPat);
+        }
+        for (int i = 0; i < nForcingMoves; i++) {
+            int z = moves[i];
+            executeMove(z, player);
+            double e = moveEvaluations[nMovesToEvaluate - 1];
+            double wert = combine(e, -quiescence(qPly + 1, -restBound(e, beta, true), -restBound(e, maxWert, false), player.getOtherPlayer()));
+            reverseMove(z, player);
+            if (wert > maxWert) {
+                maxWert = wert;
+                if (maxWert >= beta) {
                     break;
                 }
             }
         }
-        return minWert;
+        return maxWert;
+    }
 
+    //returns the evaluation of the move that was just executed and has the evaluation e, given its evaluation
+    //has to be within alpha and beta. The evaluation of the other player is the negated one
+    private double searchMove(double e, int depth, double alpha, double beta, Player otherPlayer) throws InterruptedException, TimeoutException {
+        double rest = -negamax(depth, -restBound(e, beta, true), -restBound(e, alpha, false), otherPlayer);
+        return combine(e, rest);
     }
 
-    private void computeMove() throws InterruptedException {
-                
-        startDepth = localMaxPlayer.getDifficulty().ordinal() + 1;
+    //the root of the search, which distributes the moves among the threads
+    private void maxKickoff(int depth, Player player) throws InterruptedException, TimeoutException {
+
+        while(true) {
 
-        maxKickoff(startDepth, localMaxPlayer);
+            //no other move has to be searched if one is already better than the window of the search
+            Strategy.RootResult result = strategy.rootResult.get();
+            if (result.evaluation >= strategy.betaKickoff) {
+                break;
+            }
+            int i = strategy.nextMoveKickoff.getAndIncrement();
+            if (i >= strategy.possibleMovesKickoff.length) {
+                break;
+            }
+            Move z = strategy.possibleMovesKickoff[i];
+            //the best move so far may have changed while taking this one
+            result = strategy.rootResult.get();
+
+            double wert = searchRootMove(z, depth, result.evaluation, strategy.betaKickoff, result.move == null, player);
+            reportRootMove(z, wert);
+        }
     }
 
-    private int lowerDepth (int depth, int nPrevPossMoves, int nPossMoves) {
-        if(depth <= (startDepth - 3)) {             //this ensures a minimum depth of 4 has been reached
-            if (nPrevPossMoves * nPossMoves > 20*20) {
-                return Math.min(depth, 1);
+    private void reportRootMove(Move z, double wert) {
+        strategy.rootScores.put(z, wert);
+        //another thread may publish a better move at the same time, so only replace the best move if it was not changed
+        Strategy.RootResult result = strategy.rootResult.get();
+        while (wert > result.evaluation) {
+            if (strategy.rootResult.compareAndSet(result, new Strategy.RootResult(z, wert))) {
+                break;
             }
-            if (nPrevPossMoves * nPossMoves > 14*14) {
-                return Math.min(depth, 2);
+            result = strategy.rootResult.get();
+        }
+
+        up.increment();
+    }
+
+    //the root of the young brothers wait search. The best move of the last iteration is searched first,
+    //then all others in parallel
+    //only used for YOUNG_BROTHERS_WAIT, which can only be chosen from API 21 on
+    @SuppressLint("NewApi")
+    private void ybwcKickoff(int depth, Player player) throws InterruptedException, TimeoutException {
+        LinkedList<Move> moves = strategy.rootMoves;
+        double alpha = strategy.rootAlpha;
+        double beta = strategy.betaKickoff;
+        Move first = moves.getFirst();
+        double wert = searchRootMove(first, depth, alpha, beta, true, player);
+        reportRootMove(first, wert);
+        alpha = Math.max(alpha, wert);
+        if (alpha >= beta) {
+            return;
+        }
+        YoungBrothersWaitTask.SplitPoint split = new YoungBrothersWaitTask.SplitPoint(null, beta);
+        List<YoungBrothersWaitTask> tasks = new ArrayList<YoungBrothersWaitTask>(moves.size() - 1);
+        for (Move z : moves.subList(1, moves.size())) {
+            tasks.add(new YoungBrothersWaitTask(strategy, split, strategy.snapshot, 0, false, false,
+                    TranspositionTable.NO_MOVE, z, depth, alpha, beta));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        for (YoungBrothersWaitTask task : tasks) {
+            if (task.aborted && !split.isCutoffHere()) {
+                throw new TimeoutException("Search of Bot " + player + " was stopped!");
             }
-            if (nPrevPossMoves * nPossMoves > 8*8) {
-                return Math.min(depth, 3);
+        }
+    }
+
+    //the root of the search of a helper thread in lazy smp. It searches all moves on its own, starting with another one
+    //than the other threads, and only shares its results through the transposition table
+    private void helperKickoff(int depth, Player player) throws InterruptedException, TimeoutException {
+        LinkedList<Move> moves = new LinkedList<Move>(strategy.rootMoves);
+        Collections.rotate(moves, -threadNr);
+        double alpha = strategy.rootAlpha;
+        double beta = strategy.betaKickoff;
+        boolean firstMove = true;
+        for (Move z : moves) {
+            double wert = searchRootMove(z, depth, alpha, beta, firstMove, player);
+            firstMove = false;
+            if (wert > alpha) {
+                alpha = wert;
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private double searchRootMove(Move z, int depth, double alpha, double beta, boolean firstMove, Player player) throws InterruptedException, TimeoutException {
+        //only the moves at the root are Move objects, as one of them is returned to the game
+        int packed = localGameBoard.toPackedMove(z);
+        executeMove(packed, player);
+        double e = moveEvaluations[0];
+        double penalty = undoPenalty(packed);
+        rootPenalty = penalty;
+        if (alpha > -WON + STEP && alpha < WON - STEP) {
+            alpha += penalty;
+        }
+        if (beta > -WON + STEP && beta < WON - STEP) {
+            beta += penalty;
+        }
+        double wert;
+        if (firstMove) {
+            wert = searchMove(e, depth - 1, alpha, beta, player.getOtherPlayer());
+        } else {
+            wert = searchMove(e, depth - 1, alpha, Math.nextUp(alpha), player.getOtherPlayer());
+            if (wert > alpha && wert < beta) {
+                wert = searchMove(e, depth - 1, alpha, beta, player.getOtherPlayer());
             }
         }
-        return depth;
+        //the penalty does not apply if the game is over anyways
+        if (wert > -WON + STEP && wert < WON - STEP) {
+            wert -= penalty;
+        }
+        reverseMove(packed, player);
+        return wert;
+    }
+
+    private void computeMove() throws InterruptedException, TimeoutException {
+
+        helper = strategy.parallelism == Strategy.Parallelism.LAZY_SMP && threadNr > 0;
+        splitting = strategy.parallelism == Strategy.Parallelism.YOUNG_BROTHERS_WAIT;
+        splitPoint = null;
+        nSearches = strategy.nSearches;
+        sharingAlpha = !helper && !splitting;
+        prepareSearch();
+
+        if (helper) {
+            helperKickoff(startDepth, localMaxPlayer);
+        } else if (splitting) {
+            ybwcKickoff(startDepth, localMaxPlayer);
+        } else {
+            maxKickoff(startDepth, localMaxPlayer);
+        }
+    }
+
+    private void prepareSearch() {
+        //the helpers search the same depth, as the entries they store only cut off the search of the first thread
+        //if they have exactly its depth (see probe)
+        startDepth = strategy.searchDepth;
+        int difficulty = localMaxPlayer.getDifficulty().ordinal();
+        lmrMinDepth = LMR_MIN_DEPTHS[difficulty];
+        lmrReduction = LMR_REDUCTIONS[difficulty];
+        resetMoveOrdering();
+        if(prevMove != null){
+            packedPrevMove = localGameBoard.toPackedMove(prevMove);
+        }
     }
 
     public void setPreviousMove(Move prevMove) {
        this.prevMove = prevMove;
     }
 
+    Move getPreviousMove() {
+        return prevMove;
+    }
+
 }
@@ -0,0 +1,99 @@
+package com.github.aedge90.nmm;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size table of search results, shared by all threads of a Strategy without any locks.
+ * Every entry is stored as three longs: the key xored with the other two, the evaluation and the packed data
+ * (best move, depth and bound). A reader only accepts an entry if the xor of the three gives its key again,
+ * so entries that were torn by two threads writing at the same time are simply not found.
+ * Every bucket has two entries: the first one is only replaced by results of at least the same depth,
+ * of a later iteration of the iterative deepening or of a later search, the second one is always replaced.
+ * The table is kept from one search to the next, as the results are still right for the same position and depth.
+ */
+
+class TranspositionTable {
+
+    //the evaluation is exact, a lower bound or an upper bound of the real one
+    static final int EXACT = 0;
+    static final int LOWER = 1;
+    static final int UPPER = 2;
+
+    static final int NO_MOVE = -1;
+
+    private static final int LONGS_PER_ENTRY = 3;
+    private static final int ENTRIES_PER_BUCKET = 2;
+    //set in the data of every entry, so an empty entry is never mistaken for one with a key of 0
+    private static final long USED = 1L << 26;
+
+    private final long[] table;
+    private final int bucketMask;
+    //counts the searches, so the results of older ones are replaced first
+    private int generation;
+
+    //the result of a successful probe. Every thread must use its own one
+    static class Entry {
+        double evaluation;
+        //the depth the iteration that stored the entry started with and the depth left at the node
+        int rootDepth;
+        int depth;
+        int bound;
+        int move;
+    }
+
+    //the table has 2^bits buckets
+    TranspositionTable(int bits) {
+        table = new long[(1 << bits) * ENTRIES_PER_BUCKET * LONGS_PER_ENTRY];
+        bucketMask = (1 << bits) - 1;
+    }
+
+    void clear() {
+        Arrays.fill(table, 0);
+    }
+
+    //all entries stored so far can still be found, but are replaced by any result of the new search
+    void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    //returns true and fills entry if there is an entry for key
+    boolean probe(long key, Entry entry) {
+        int index = bucketIndex(key);
+        for (int i = 0; i < ENTRIES_PER_BUCKET; i++, index += LONGS_PER_ENTRY) {
+            long evaluation = table[index + 1];
+            long data = table[index + 2];
+            if ((table[index] ^ evaluation ^ data) == key && data != 0) {
+                entry.evaluation = Double.longBitsToDouble(evaluation);
+                entry.move = (int) (data & 0xFFFF) - 1;
+                entry.depth = (int) ((data >>> 16) & 0xFF);
+                entry.bound = (int) ((data >>> 24) & 0x3);
+                entry.rootDepth = (int) ((data >>> 27) & 0xFF);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void store(long key, int rootDepth, int depth, int bound, double evaluation, int move) {
+        int index = bucketIndex(key);
+        long first = table[index] ^ table[index + 1] ^ table[index + 2];
+        int firstDepth = (int) ((table[index + 2] >>> 16) & 0xFF);
+        int firstRootDepth = (int) ((table[index + 2] >>> 27) & 0xFF);
+        int firstGeneration = (int) ((table[index + 2] >>> 35) & 0xFF);
+        //keep the deeper result of the current iteration in the first entry, unless it is about the same position
+        if (first != key && depth < firstDepth && rootDepth <= firstRootDepth && firstGeneration == generation) {
+            index += LONGS_PER_ENTRY;
+        }
+        long data = (move + 1) | ((long) depth << 16) | ((long) bound << 24) | USED | ((long) rootDepth << 27)
+                | ((long) generation << 35);
+        long evaluationBits = Double.doubleToLongBits(evaluation);
+        table[index] = key ^ evaluationBits ^ data;
+        table[index + 1] = evaluationBits;
+        table[index + 2] = data;
+    }
+
+    private int bucketIndex(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * ENTRIES_PER_BUCKET * LONGS_PER_ENTRY;
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.github.aedge90.nmm;
+
+import android.os.Build;
+import android.support.annotation.RequiresApi;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The search of one move of a node in the Young Brothers Wait search (see Strategy.Parallelism).
+ * A task carries everything needed to search its move on its own: the game state of the node, how deep in the search
+ * it is and whether the two moves leading to it prevented a mill. It is searched by a StrategyRunnable of its own,
+ * which restores its gameboard from the snapshot, so it can be executed by any thread of the ForkJoinPool.
+ * All tasks of a node share a SplitPoint, so the others can stop as soon as one of them is better than beta.
+ */
+
+@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+class YoungBrothersWaitTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    //the node whose moves are searched in parallel
+    static class SplitPoint {
+
+        private final SplitPoint parent;
+        private final double beta;
+        private volatile boolean cutoff;
+
+        SplitPoint(SplitPoint parent, double beta) {
+            this.parent = parent;
+            this.beta = beta;
+        }
+
+        //true if the search of this node or one above it is not needed any more
+        boolean isCutoff() {
+            for (SplitPoint split = this; split != null; split = split.parent) {
+                if (split.cutoff) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isCutoffHere() {
+            return cutoff;
+        }
+    }
+
+    private final Strategy strategy;
+    final SplitPoint split;
+    final GameBoardSnapshot snapshot;
+    //the number of moves from the root to the node and whether the last two of them prevented a mill
+    final int ply;
+    final boolean lastMovePreventedMill;
+    final boolean secondLastMovePreventedMill;
+    //the move to search. Moves at the root are Move objects, all others are packed ones
+    final int move;
+    final Move rootMove;
+    final int depth;
+    final double alpha;
+    final double beta;
+
+    double wert;
+    //set if the search was stopped before it was done
+    boolean aborted;
+
+    YoungBrothersWaitTask(Strategy strategy, SplitPoint split, GameBoardSnapshot snapshot, int ply, boolean lastMovePreventedMill,
+                          boolean secondLastMovePreventedMill, int move, Move rootMove, int depth, double alpha, double beta) {
+        this.strategy = strategy;
+        this.split = split;
+        this.snapshot = snapshot;
+        this.ply = ply;
+        this.lastMovePreventedMill = lastMovePreventedMill;
+        this.secondLastMovePreventedMill = secondLastMovePreventedMill;
+        this.move = move;
+        this.rootMove = rootMove;
+        this.depth = depth;
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    @Override
+    protected void compute() {
+        StrategyRunnable searcher = strategy.acquireSearcher();
+        try {
+            wert = searcher.searchTask(this);
+            if (wert >= split.beta) {
+                split.cutoff = true;
+            }
+        } catch (TimeoutException e) {
+            aborted = true;
+        } catch (InterruptedException e) {
+            aborted = true;
+            Thread.currentThread().interrupt();
+        } finally {
+            strategy.releaseSearcher(searcher);
+        }
+    }
+
+}
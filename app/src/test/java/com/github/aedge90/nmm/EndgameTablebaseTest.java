@@ -0,0 +1,334 @@
+package com.github.aedge90.nmm;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class EndgameTablebaseTest {
+
+    //all tables of the moving phase of Five Men's Morris, up to five against five pieces
+    private static EndgameTablebase sTablebase;
+    //the solution of Five Men's Morris with only three pieces to set for each player
+    private static EndgameTablebase sSolution;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void generateTablebase() throws IOException {
+        sTablebase = new TablebaseGenerator(new Mill5()).generate(5, 10);
+        sSolution = new TablebaseGenerator(new Mill5()).solve(3);
+    }
+
+    @Test
+    public void unrank_ShouldReturnPositionOfRank() {
+
+        PositionIndex index = new PositionIndex(16, 3, 4);
+        assertEquals(560 * 715, index.size);
+
+        for (int i = 0; i < index.size; i++) {
+            int mover = index.unrankMover(i);
+            int other = index.unrankOther(i, mover);
+            assertEquals(3, Integer.bitCount(mover));
+            assertEquals(4, Integer.bitCount(other));
+            assertEquals(0, mover & other);
+            assertEquals(i, index.rank(mover, other));
+        }
+    }
+
+    @Test
+    public void generate_ResultOfEveryPositionShouldFollowFromItsMoves() {
+
+        for (int nMover = 3; nMover <= 5; nMover++) {
+            for (int nOther = 3; nOther <= 5; nOther++) {
+                assertResultsFollowFromMoves(nMover, nOther);
+            }
+        }
+    }
+
+    @Test
+    public void generate_ShouldFindWinsAndLosses() {
+
+        int nWins = 0;
+        int nLosses = 0;
+        PositionIndex index = sTablebase.index(3, 3);
+        for (int i = 0; i < index.size; i++) {
+            int result = sTablebase.get(3, 3, i);
+            if (EndgameTablebase.isWin(result)) {
+                nWins++;
+            } else if (EndgameTablebase.isLoss(result)) {
+                nLosses++;
+            }
+        }
+        assertTrue(nWins > 0);
+        assertTrue(nLosses > 0);
+    }
+
+    @Test
+    public void probe_ShouldReturnUnknownWithoutTable() throws IOException {
+
+        EndgameTablebase tablebase = new TablebaseGenerator(new Mill5()).generate(3, 6);
+
+        assertEquals(EndgameTablebase.UNKNOWN, tablebase.probe(0xF, 0xF << 4));
+    }
+
+    @Test
+    public void load_ShouldReturnWrittenTables() throws IOException {
+
+        File dir = mFolder.newFolder();
+        sTablebase.write(dir);
+        EndgameTablebase loaded = EndgameTablebase.load(dir, new Mill5());
+
+        PositionIndex index = sTablebase.index(4, 3);
+        for (int i = 0; i < index.size; i++) {
+            assertEquals(sTablebase.get(4, 3, i), loaded.get(4, 3, i));
+        }
+        assertTrue(loaded.contains(3, 4));
+        assertEquals(null, EndgameTablebase.load(dir, new Mill9()));
+    }
+
+    @Test
+    public void solve_ResultOfEveryPositionOfTheSetPhaseShouldFollowFromItsMoves() {
+
+        GameBoard gameBoard = new Mill5();
+        Player mover = new Player(Options.Color.WHITE);
+        Player other = new Player(Options.Color.BLACK);
+        mover.setOtherPlayer(other);
+        other.setOtherPlayer(mover);
+        int[] moves = new int[GameBoard.MAX_MOVES];
+        int nTables = 0;
+        for (int nSetCounts = 1; nSetCounts <= 6; nSetCounts++) {
+            int otherSetCount = nSetCounts / 2;
+            int moverSetCount = nSetCounts - otherSetCount;
+            for (int nMover = 0; nMover <= 3 - moverSetCount; nMover++) {
+                for (int nOther = 0; nOther <= 3 - otherSetCount; nOther++) {
+                    assertTrue(sSolution.contains(nMover, nOther, moverSetCount, otherSetCount));
+                    nTables++;
+                    mover.setSetCount(moverSetCount);
+                    other.setSetCount(otherSetCount);
+                    PositionIndex index = sSolution.index(nMover, nOther, moverSetCount, otherSetCount);
+                    for (int i = 0; i < index.size; i++) {
+                        int moverPieces = index.unrankMover(i);
+                        int otherPieces = index.unrankOther(i, moverPieces);
+                        gameBoard.setPosition(moverPieces, otherPieces, moverSetCount, otherSetCount, GameBoard.WHITE);
+                        int n = gameBoard.possibleMoves(mover, moves);
+                        //the best move is the one the opponent values least
+                        double best = Double.NEGATIVE_INFINITY;
+                        for (int j = 0; j < n; j++) {
+                            int result = sSolution.probeMove(moverPieces, otherPieces, moverSetCount, otherSetCount, moves[j]);
+                            assertTrue(result != EndgameTablebase.UNKNOWN);
+                            best = Math.max(best, -StrategyRunnable.tablebaseEvaluation(result));
+                        }
+                        //one move later the distance of a win or loss is one less
+                        if (best > 0) {
+                            best -= StrategyRunnable.STEP;
+                        } else if (best < 0) {
+                            best += StrategyRunnable.STEP;
+                        }
+                        assertEquals("position " + i + " of " + nMover + " against " + nOther + " pieces",
+                                best, StrategyRunnable.tablebaseEvaluation(sSolution.get(nMover, nOther, moverSetCount, otherSetCount, i)), 0);
+                    }
+                }
+            }
+        }
+        assertEquals(4 * 3 + 3 * 3 + 3 * 2 + 2 * 2 + 2 + 1, nTables);
+        //with three pieces for each player no one can force a mill
+        assertEquals(EndgameTablebase.DRAW, sSolution.probe(0, 0, 3, 3));
+    }
+
+    @Test
+    public void load_ShouldReturnWrittenSolution() throws IOException {
+
+        File dir = mFolder.newFolder();
+        sSolution.writeSolution(dir);
+        EndgameTablebase loaded = EndgameTablebase.load(dir, new Mill5());
+
+        PositionIndex index = sSolution.index(1, 2, 2, 1);
+        for (int i = 0; i < index.size; i++) {
+            assertEquals(sSolution.get(1, 2, 2, 1, i), loaded.get(1, 2, 2, 1, i));
+        }
+        assertTrue(loaded.contains(3, 3));
+        assertEquals(sSolution.probe(0, 0, 3, 3), loaded.probe(0, 0, 3, 3));
+        assertEquals(null, EndgameTablebase.load(dir, new Mill9()));
+    }
+
+    @Test
+    public void unpackSolution_ShouldWriteSolutionPackedWithGzip() throws IOException {
+
+        File written = mFolder.newFolder();
+        sSolution.writeSolution(written);
+        ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(packed);
+        out.write(Files.readAllBytes(sSolution.solutionFile(written).toPath()));
+        out.close();
+
+        File dir = new File(mFolder.newFolder(), "tablebases");
+        new EndgameTablebase(new Mill5()).unpackSolution(new ByteArrayInputStream(packed.toByteArray()), dir);
+        EndgameTablebase loaded = EndgameTablebase.load(dir, new Mill5());
+
+        PositionIndex index = sSolution.index(2, 2, 1, 1);
+        for (int i = 0; i < index.size; i++) {
+            assertEquals(sSolution.get(2, 2, 1, 1, i), loaded.get(2, 2, 1, 1, i));
+        }
+        assertEquals(sSolution.probe(0, 0, 3, 3), loaded.probe(0, 0, 3, 3));
+        assertEquals(1, dir.list().length);
+    }
+
+    @Test
+    public void generate_ShouldResumeStoppedGenerationInDir() throws IOException {
+
+        File dir = mFolder.newFolder();
+        //stops at the first checkpoint of the second partition, after the first one is done
+        generateUntil(dir, "3 against 4");
+        assertTrue(new File(dir, "mill5_3_3.tb").isFile());
+        assertTrue(new File(dir, "mill5_3_4.tb.checkpoint").isFile());
+        assertTrue(!new File(dir, "mill5_3_4.tb").exists());
+
+        EndgameTablebase resumed = new TablebaseGenerator(new Mill5(), dir, 2).generate(4, 8);
+
+        assertEqualsUpToFourPieces(resumed);
+        assertEquals(4, dir.list().length);
+    }
+
+    @Test
+    public void generate_ShouldResumeGenerationThatCrashedInTheMiddleOfADistance() throws IOException {
+
+        File dir = mFolder.newFolder();
+        generateUntil(dir, "4 against 4 pieces: distance 3 ");
+        File checkpoint = new File(dir, "mill5_4_4.tb.checkpoint");
+        DataInputStream in = new DataInputStream(new FileInputStream(checkpoint));
+        int distance = in.readInt();
+        int lastDistance = in.readInt();
+        assertTrue(!in.readBoolean());
+        in.close();
+        assertEquals(4, distance);
+
+        //as if it crashed after some results of distance 4 were set and the other files were changed
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(checkpoint));
+        out.writeInt(distance);
+        out.writeInt(lastDistance);
+        out.writeBoolean(true);
+        out.close();
+        RandomAccessFile results = new RandomAccessFile(new File(dir, "mill5_4_4.tb.results"), "rw");
+        int nSet = 0;
+        for (long i = 0; i < results.length(); i += 7) {
+            results.seek(i);
+            if (results.read() == 0) {
+                results.seek(i);
+                results.write(EndgameTablebase.result(false, 4));
+                nSet++;
+            }
+        }
+        results.close();
+        assertTrue(nSet > 0);
+        for (String suffix : new String[]{"moves", "wins", "losses"}) {
+            RandomAccessFile file = new RandomAccessFile(new File(dir, "mill5_4_4.tb." + suffix), "rw");
+            file.write(new byte[(int) file.length()]);
+            file.close();
+        }
+
+        EndgameTablebase resumed = new TablebaseGenerator(new Mill5(), dir, 1).generate(4, 8);
+
+        assertEqualsUpToFourPieces(resumed);
+        assertEquals(4, dir.list().length);
+    }
+
+    //generates the tables up to four against four pieces in dir until a line starting with prefix is reported
+    private void generateUntil(File dir, final String prefix) throws IOException {
+        final TablebaseGenerator stopped = new TablebaseGenerator(new Mill5(), dir, 1);
+        stopped.reportTo(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }) {
+            @Override
+            public void println(String x) {
+                if (x.startsWith(prefix)) {
+                    stopped.stop();
+                }
+            }
+        });
+        stopped.generate(4, 8);
+    }
+
+    private void assertEqualsUpToFourPieces(EndgameTablebase tablebase) {
+        for (int nMover = 3; nMover <= 4; nMover++) {
+            for (int nOther = 3; nOther <= 4; nOther++) {
+                PositionIndex index = sTablebase.index(nMover, nOther);
+                for (int i = 0; i < index.size; i++) {
+                    assertEquals(sTablebase.get(nMover, nOther, i), tablebase.get(nMover, nOther, i));
+                }
+            }
+        }
+    }
+
+    //every position has to be won after the shortest win its moves lead to, otherwise drawn if one of them leads
+    //to a draw, and otherwise lost after the longest loss
+    private void assertResultsFollowFromMoves(int nMover, int nOther) {
+        GameBoard gameBoard = new Mill5();
+        Player mover = new Player(Options.Color.WHITE);
+        Player other = new Player(Options.Color.BLACK);
+        mover.setOtherPlayer(other);
+        other.setOtherPlayer(mover);
+        int[] moves = new int[GameBoard.MAX_MOVES];
+        PositionIndex index = sTablebase.index(nMover, nOther);
+        for (int i = 0; i < index.size; i++) {
+            int moverPieces = index.unrankMover(i);
+            int otherPieces = index.unrankOther(i, moverPieces);
+            gameBoard.setPosition(moverPieces, otherPieces, 0, 0, GameBoard.WHITE);
+            int n = gameBoard.possibleMoves(mover, moves);
+            int win = Integer.MAX_VALUE;
+            int loss = 0;
+            boolean draw = false;
+            for (int j = 0; j < n; j++) {
+                int move = moves[j];
+                int nextMover = otherPieces;
+                if (PackedMove.kill(move) != PackedMove.NONE) {
+                    nextMover &= ~(1 << PackedMove.kill(move));
+                }
+                int nextOther = (moverPieces & ~(1 << PackedMove.src(move))) | (1 << PackedMove.dest(move));
+                int result;
+                if (Integer.bitCount(nextMover) < 3) {
+                    result = EndgameTablebase.result(false, 0);
+                } else {
+                    result = sTablebase.probe(nextMover, nextOther);
+                }
+                if (EndgameTablebase.isLoss(result)) {
+                    win = Math.min(win, EndgameTablebase.distance(result) + 1);
+                } else if (result == EndgameTablebase.DRAW) {
+                    draw = true;
+                } else {
+                    loss = Math.max(loss, EndgameTablebase.distance(result) + 1);
+                }
+            }
+            int expected;
+            if (win != Integer.MAX_VALUE) {
+                expected = EndgameTablebase.result(true, win);
+            } else if (draw) {
+                expected = EndgameTablebase.DRAW;
+            } else {
+                expected = EndgameTablebase.result(false, loss);
+            }
+            assertEquals("position " + i + " of " + nMover + " against " + nOther + " pieces", expected, sTablebase.get(nMover, nOther, i));
+        }
+    }
+
+}
@@ -243,6 +243,28 @@ public class GameBoardTestNonParameterized {
 
     }
 
+    @Test
+    public void reverseCompleteTurn_OnCopyShouldNotReverseTurnsOfOriginal(){
+
+        Move move = new Move(new Position(6,6), null, null);
+        mGameBoard.executeCompleteTurn(move, mPlayerBlack);
+        GameBoard copy = mGameBoard.getCopy();
+
+        try {
+            copy.reverseCompleteTurn(move, mPlayerBlack);
+            fail("Expected an IllegalStateException to be thrown");
+        } catch (IllegalStateException e) {
+            String expectedMessage = "is trying to reverse a turn that can not be reversed anymore";
+            if(!e.getMessage().contains(expectedMessage)){
+                fail("expected message to contain: " + expectedMessage + "\n" + "but was: " + e.getMessage());
+            }
+        }
+
+        mGameBoard.reverseCompleteTurn(move, mPlayerBlack);
+        assertEquals(0, mGameBoard.getPositions(mPlayerBlack.getColor()).size());
+        assertEquals(5, mPlayerBlack.getSetCount());
+    }
+
     @Test
     public void preventedMillShouldReturnTrue1() {
 
@@ -331,6 +353,77 @@ public class GameBoardTestNonParameterized {
 
     }
 
+    @Test
+    public void canCloseMillShouldReturnTrue() {
+
+        Options.Color[][] mill7 =
+
+                {{N, I, I, N, I, I, N},
+                { I, N, I, W, I, B, I},
+                { I, I, I, I, I, I, I},
+                { N, W, I, W, I, N, B},
+                { I, I, I, I, I, I, I},
+                { I, B, I, W, I, B, I},
+                { B, I, I, N, I, I, N}};
+
+        GameBoard gameBoard = new Mill7(mill7);
+
+        mPlayerBlack.setSetCount(0);
+        mPlayerWhite.setSetCount(0);
+
+        assertTrue(gameBoard.canCloseMill(mPlayerBlack));
+        assertFalse(gameBoard.canCloseMill(mPlayerWhite));
+
+    }
+
+    @Test
+    public void canCloseMillShouldReturnTrueIfPlayerCanJump() {
+
+        Options.Color[][] mill7 =
+
+                {{N, I, I, N, I, I, N},
+                { I, N, I, W, I, B, I},
+                { I, I, I, I, I, I, I},
+                { N, W, I, W, I, N, N},
+                { I, I, I, I, I, I, I},
+                { I, N, I, W, I, B, I},
+                { B, I, I, N, I, I, N}};
+
+        GameBoard gameBoard = new Mill7(mill7);
+
+        mPlayerBlack.setSetCount(0);
+        mPlayerWhite.setSetCount(0);
+
+        assertTrue(gameBoard.canCloseMill(mPlayerBlack));
+
+    }
+
+    @Test
+    public void canCloseMillShouldReturnFalse() {
+
+        Options.Color[][] mill7 =
+
+                {{N, I, I, N, I, I, N},
+                { I, N, I, W, I, B, I},
+                { I, I, I, I, I, I, I},
+                { N, W, I, W, I, N, N},
+                { I, I, I, I, I, I, I},
+                { I, B, I, W, I, B, I},
+                { B, I, I, N, I, I, N}};
+
+        GameBoard gameBoard = new Mill7(mill7);
+
+        mPlayerBlack.setSetCount(0);
+        mPlayerWhite.setSetCount(0);
+
+        assertFalse(gameBoard.canCloseMill(mPlayerBlack));
+
+        //but he could set a piece into it
+        mPlayerBlack.setSetCount(1);
+        assertTrue(gameBoard.canCloseMill(mPlayerBlack));
+
+    }
+
     @Test
     public void isInNPotentialMillsShouldBeOne1 () {
 
@@ -7,6 +7,7 @@ import org.junit.runners.Parameterized;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.Random;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.fail;
@@ -85,6 +86,128 @@ public class GameBoardTestParameterized {
 
     }
 
+    @Test
+    public void getKey_ShouldEqualComputedKeyDuringRandomGames(){
+
+        Random random = new Random(42);
+        final long keyBefore = mGameBoard.getKey();
+        assertEquals(mGameBoard.computeKey(), keyBefore);
+
+        for (int game = 0; game < 20; game++) {
+            LinkedList<Move> movesDone = new LinkedList<Move>();
+            LinkedList<Player> playersDone = new LinkedList<Player>();
+            Player player = mPlayerBlack;
+            while (movesDone.size() < 200 && mGameBoard.getState(player.getOtherPlayer()).equals(GameBoard.GameState.RUNNING)) {
+                LinkedList<Move> allPossibleMoves = mGameBoard.possibleMoves(player);
+                Move move = allPossibleMoves.get(random.nextInt(allPossibleMoves.size()));
+                mGameBoard.executeSetOrMovePhase(move, player);
+                assertEquals(mGameBoard.computeKey(), mGameBoard.getKey());
+                mGameBoard.executeKillPhase(move, player);
+                assertEquals(mGameBoard.computeKey(), mGameBoard.getKey());
+                assertEquals(mGameBoard.getKey(), mGameBoard.getCopy().getKey());
+                movesDone.add(move);
+                playersDone.add(player);
+                player = player.getOtherPlayer();
+            }
+            while (!movesDone.isEmpty()) {
+                mGameBoard.reverseCompleteTurn(movesDone.removeLast(), playersDone.removeLast());
+                assertEquals(mGameBoard.computeKey(), mGameBoard.getKey());
+            }
+            assertEquals(keyBefore, mGameBoard.getKey());
+        }
+
+    }
+
+    @Test
+    public void reverseCompleteTurn_ShouldRestoreEverythingAfterDeepRandomSequences(){
+
+        Random random = new Random(7);
+
+        for (int game = 0; game < 10; game++) {
+            LinkedList<Move> movesDone = new LinkedList<Move>();
+            LinkedList<Player> playersDone = new LinkedList<Player>();
+            LinkedList<GameBoard> gameBoardsBefore = new LinkedList<GameBoard>();
+            LinkedList<Integer> setCountsBefore = new LinkedList<Integer>();
+            Player player = mPlayerBlack;
+            // the remis count is ignored, so the sequences get hundreds of moves deep
+            while (movesDone.size() < 400) {
+                LinkedList<Move> allPossibleMoves = mGameBoard.possibleMoves(player);
+                if (allPossibleMoves.isEmpty()) {
+                    break;
+                }
+                gameBoardsBefore.add(mGameBoard.getCopy());
+                setCountsBefore.add(player.getSetCount());
+                Move move = chooseRandomMove(allPossibleMoves, random);
+                mGameBoard.executeCompleteTurn(move, player);
+                movesDone.add(move);
+                playersDone.add(player);
+                player = player.getOtherPlayer();
+            }
+            while (!movesDone.isEmpty()) {
+                Player playerDone = playersDone.removeLast();
+                mGameBoard.reverseCompleteTurn(movesDone.removeLast(), playerDone);
+                assertEqualGameboardStates(gameBoardsBefore.removeLast(), mGameBoard);
+                assertEquals((int) setCountsBefore.removeLast(), playerDone.getSetCount());
+            }
+        }
+
+    }
+
+    @Test
+    public void restore_ShouldSetStateOfSnapshot(){
+
+        GameBoardSnapshot snapshot = mGameBoard.snapshot(mPlayerBlack);
+        final GameBoard gameBoardBefore = mGameBoard.getCopy();
+
+        GameBoard other = mGameBoard.getCopy();
+        Random random = new Random(3);
+        //the set counts of the players must not change, so use copies of them
+        Player player = new Player(mPlayerBlack);
+        Player otherPlayer = new Player(mPlayerWhite);
+        player.setOtherPlayer(otherPlayer);
+        otherPlayer.setOtherPlayer(player);
+        for (int i = 0; i < 20; i++) {
+            LinkedList<Move> allPossibleMoves = other.possibleMoves(player);
+            if (allPossibleMoves.isEmpty()) {
+                break;
+            }
+            other.executeCompleteTurn(chooseRandomMove(allPossibleMoves, random), player);
+            player = player.getOtherPlayer();
+        }
+        other.restore(snapshot);
+
+        assertEqualGameboards(gameBoardBefore, other, null);
+        assertEquals(mGameBoard.getRemisCount(), other.getRemisCount());
+        assertEquals(snapshot.getKey(), other.getKey());
+        assertEquals(other.computeKey(), other.getKey());
+        assertEquals(Options.Color.BLACK, other.getSideToMove());
+        assertEquals(mPlayerBlack.getSetCount(), other.getSetCount(GameBoard.BLACK));
+        assertEquals(mPlayerWhite.getSetCount(), other.getSetCount(GameBoard.WHITE));
+        // the restored gameboard has to generate the same moves as the original one
+        assertEquals(mGameBoard.possibleMoves(mPlayerBlack), other.possibleMoves(mPlayerBlack));
+
+    }
+
+    // kill moves are chosen rarely, so there are many moves until a player has lost
+    private static Move chooseRandomMove(LinkedList<Move> moves, Random random){
+        Move move = moves.get(random.nextInt(moves.size()));
+        for (int i = 0; i < 5 && move.getKill() != null; i++) {
+            move = moves.get(random.nextInt(moves.size()));
+        }
+        return move;
+    }
+
+    public void assertEqualGameboardStates(GameBoard expected, GameBoard actual){
+        assertEquals(expected.getPositions(Options.Color.BLACK), actual.getPositions(Options.Color.BLACK));
+        assertEquals(expected.getPositions(Options.Color.WHITE), actual.getPositions(Options.Color.WHITE));
+        assertEquals(expected.getSetCount(GameBoard.WHITE), actual.getSetCount(GameBoard.WHITE));
+        assertEquals(expected.getSetCount(GameBoard.BLACK), actual.getSetCount(GameBoard.BLACK));
+        assertEquals(expected.getSideToMove(), actual.getSideToMove());
+        assertEquals(expected.getRemisCount(), actual.getRemisCount());
+        assertEquals(expected.getKey(), actual.getKey());
+        assertEquals(expected.toString(), actual.toString());
+    }
+
     public void assertEqualGameboards(GameBoard expected, GameBoard actual, Move z){
         for (int x = 0; x < expected.LENGTH; x++) {
             for (int y = 0; y < expected.LENGTH; y++) {
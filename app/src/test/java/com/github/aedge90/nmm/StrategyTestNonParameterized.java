@@ -6,7 +6,11 @@ import android.widget.ProgressBar;
 
 import org.junit.Test;
 
+import java.io.IOException;
+
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
 
 public class StrategyTestNonParameterized {
 
@@ -18,8 +22,77 @@ public class StrategyTestNonParameterized {
         }
     }
 
-    //test for same evaluation, as resulting move may be different for different nThreads
+    @Test
+    public void computeMoveWithTimeBudgetShouldReturnMoveOfCompleteIterationInTime() throws InterruptedException {
+
+        ProgressBar progBar = new ProgressBar(new MockContext());
+        ProgressUpdater updater = new ProgressUpdater(progBar, new GameModeActivity());
+
+        GameBoard gameBoard = new Mill9();
+        Player playerBlack = new Player(Options.Color.BLACK);
+        Player playerWhite = new Player(Options.Color.WHITE);
+        playerBlack.setDifficulty(Options.Difficulties.HARDEST);
+        playerBlack.setOtherPlayer(playerWhite);
+        playerWhite.setOtherPlayer(playerBlack);
+        playerBlack.setSetCount(9);
+        playerWhite.setSetCount(9);
+        Strategy strategy = new Strategy(gameBoard, playerBlack, updater);
+
+        long start = System.currentTimeMillis();
+        Move result = strategy.computeMove();
+        long time = System.currentTimeMillis() - start;
+
+        assertNotNull(result);
+        assertTrue(strategy.getReachedDepth() >= 1);
+        //the budget of HARDEST is 6 seconds, give it some time to stop all threads
+        assertTrue("took " + time + " ms", time < 6000 + 1000);
+    }
+
+    @Test
+    public void computeMoveShouldReturnMoveSoonAfterCancel() throws InterruptedException {
+
+        GameBoard gameBoard = new Mill9();
+        Player[] players = createHarderPlayers();
+        players[0].setDifficulty(Options.Difficulties.HARDEST);
+        final Strategy[] strategy = new Strategy[1];
+        final long[] cancelTime = new long[1];
+        //cancels the search as soon as the first move of the last iteration is searched
+        ProgressUpdater updater = new ProgressUpdater() {
+            @Override
+            public void increment() {
+                if (strategy[0].searchDepth == 7 && cancelTime[0] == 0) {
+                    cancelTime[0] = System.currentTimeMillis();
+                    strategy[0].cancel();
+                }
+            }
+        };
+        //without a time budget, so only the cancellation stops it
+        strategy[0] = new Strategy(gameBoard, players[0], updater, 4);
+
+        Move result = strategy[0].computeMove();
+        long time = System.currentTimeMillis() - cancelTime[0];
+
+        assertNotNull(result);
+        assertEquals(6, strategy[0].getReachedDepth());
+        assertTrue("took " + time + " ms", time < 100);
+    }
+
+    @Test
+    public void computeMoveWithLazySmpShouldHaveSameEvaluationForAnyNumberOfThreads() throws InterruptedException {
+        computeMoveShouldHaveSameEvaluationForAnyNumberOfThreads(Strategy.Parallelism.LAZY_SMP);
+    }
+
+    @Test
+    public void computeMoveWithYoungBrothersWaitShouldHaveSameEvaluationForAnyNumberOfThreads() throws InterruptedException {
+        computeMoveShouldHaveSameEvaluationForAnyNumberOfThreads(Strategy.Parallelism.YOUNG_BROTHERS_WAIT);
+    }
+
     public void computeMoveShouldHaveSameEvaluationForAnyNumberOfThreads () throws InterruptedException {
+        computeMoveShouldHaveSameEvaluationForAnyNumberOfThreads(Strategy.Parallelism.ROOT_SPLITTING);
+    }
+
+    //test for same evaluation, as resulting move may be different for different nThreads
+    public void computeMoveShouldHaveSameEvaluationForAnyNumberOfThreads (Strategy.Parallelism parallelism) throws InterruptedException {
 
         int nThreads = 12;
 
@@ -44,6 +117,8 @@ public class StrategyTestNonParameterized {
             mPlayerWhites[j].setSetCount(9);
             strategiesBlack[j] = new Strategy(gameBoards[j], mPlayerBlacks[j], updater, j+1);
             strategiesWhite[j] = new Strategy(gameBoards[j], mPlayerWhites[j], updater, j+1);
+            strategiesBlack[j].setParallelism(parallelism);
+            strategiesWhite[j].setParallelism(parallelism);
         }
 
         //make some rounds and check if the results on all possible thread counts are the same
@@ -91,4 +166,193 @@ public class StrategyTestNonParameterized {
         }
     }
 
+    @Test
+    public void computeMoveReusingLastSearchShouldHaveSameEvaluationAsNewStrategy() throws InterruptedException {
+
+        ProgressBar progBar = new ProgressBar(new MockContext());
+        ProgressUpdater updater = new ProgressUpdater(progBar, new GameModeActivity());
+
+        GameBoard gameBoard = new Mill9();
+        Player[] players = createHarderPlayers();
+        Strategy[] strategies = {new Strategy(gameBoard, players[0], updater, 1), new Strategy(gameBoard, players[1], updater, 1)};
+        Move[] prevMoves = new Move[2];
+        for(int i = 0; i < 16 && gameBoard.getState(players[i % 2]).equals(GameBoard.GameState.RUNNING); i++){
+            Strategy newStrategy = new Strategy(gameBoard, players[i % 2], updater, 1);
+            newStrategy.setPreviousMove(prevMoves[i % 2]);
+            newStrategy.computeMove();
+            prevMoves[i % 2] = strategies[i % 2].computeMove();
+            assertEquals("move " + i, newStrategy.getResultEvaluation(), strategies[i % 2].getResultEvaluation());
+            gameBoard.executeCompleteTurn(prevMoves[i % 2], players[i % 2]);
+        }
+
+        //the bots expect the moves of each other most of the time
+        assertTrue(strategies[0].getReusedSearches() + strategies[1].getReusedSearches() > 0);
+    }
+
+    @Test
+    public void computeMoveShouldNotReuseLastSearchOfMovesThatWereNotPlayed() throws InterruptedException {
+
+        GameBoard gameBoard = new Mill9();
+        Player[] players = createHarderPlayers();
+        players[0].setDifficulty(Options.Difficulties.EASY);
+        Strategy strategy = new Strategy(gameBoard, players[0], new ProgressUpdater(), 1);
+        gameBoard.executeCompleteTurn(strategy.computeMove(), players[0]);
+        //neither of the first two moves of the game can prevent a mill
+        gameBoard.executeCompleteTurn(gameBoard.possibleMoves(players[1]).getFirst(), players[1]);
+
+        //the only result of the position is the one of a path on which the move of black prevented a mill
+        strategy.transpositionTable.clear();
+        long key = gameBoard.snapshot(players[0]).getKey() ^ StrategyRunnable.LAST_MOVE_PREVENTED_MILL_KEY;
+        int move = gameBoard.toPackedMove(gameBoard.possibleMoves(players[0]).getFirst());
+        strategy.transpositionTable.store(key, 2, 2, TranspositionTable.EXACT, 0, move);
+        strategy.computeMove();
+
+        assertEquals(0, strategy.getReusedSearches());
+    }
+
+    @Test
+    public void computeMoveAfterPonderingShouldHaveSameEvaluationAsWithoutPondering() throws InterruptedException {
+        computeMoveAfterPonderingShouldHaveSameEvaluationAsWithoutPondering(true);
+    }
+
+    @Test
+    public void computeMoveAfterStoppedPonderingShouldHaveSameEvaluationAsWithoutPondering() throws InterruptedException {
+        computeMoveAfterPonderingShouldHaveSameEvaluationAsWithoutPondering(false);
+    }
+
+    //if pondering is stopped before it is done, the move is computed again, but with the results of the ponderer
+    public void computeMoveAfterPonderingShouldHaveSameEvaluationAsWithoutPondering(boolean ponderAllMoves) throws InterruptedException {
+
+        ProgressBar progBar = new ProgressBar(new MockContext());
+        ProgressUpdater updater = new ProgressUpdater(progBar, new GameModeActivity());
+
+        GameBoard gameBoard = new Mill9();
+        Player[] players = createHarderPlayers();
+        Strategy[] strategies = {new Strategy(gameBoard, players[0], updater, 1), new Strategy(gameBoard, players[1], updater, 1)};
+        Move move = null;
+        for(int i = 0; i < 6; i++){
+            move = strategies[i % 2].computeMove();
+            gameBoard.executeCompleteTurn(move, players[i % 2]);
+        }
+
+        //black ponders while white thinks
+        strategies[1].startPondering();
+        if(ponderAllMoves) {
+            strategies[1].waitForPondering();
+        }
+        Move whiteMove = strategies[0].computeMove();
+        gameBoard.executeCompleteTurn(whiteMove, players[0]);
+
+        Strategy notPondering = new Strategy(gameBoard, players[1], updater, 1);
+        notPondering.setPreviousMove(move);
+        notPondering.computeMove();
+        strategies[1].computeMove();
+
+        if(ponderAllMoves) {
+            assertEquals(1, strategies[1].getPonderHits());
+        }
+        assertEquals(notPondering.getResultEvaluation(), strategies[1].getResultEvaluation());
+        assertEquals(notPondering.getReachedDepth(), strategies[1].getReachedDepth());
+    }
+
+    @Test
+    public void computeMoveWithEndgameTablebaseShouldPlayShortestWin() throws InterruptedException, IOException {
+
+        GameBoard gameBoard = new Mill5();
+        EndgameTablebase tablebase = new TablebaseGenerator(gameBoard).generate(3, 6);
+        Player[] players = createHarderPlayers();
+        players[0].setSetCount(0);
+        players[1].setSetCount(0);
+        //the first position of three against three pieces that is won, but not with the next move
+        PositionIndex index = tablebase.index(3, 3);
+        int i = 0;
+        while (!EndgameTablebase.isWin(tablebase.get(3, 3, i)) || EndgameTablebase.distance(tablebase.get(3, 3, i)) == 1) {
+            i++;
+        }
+        int white = index.unrankMover(i);
+        gameBoard.setPosition(white, index.unrankOther(i, white), 0, 0, GameBoard.WHITE);
+        Strategy strategy = new Strategy(gameBoard, players[0], new ProgressUpdater(), 1);
+        strategy.setTablebase(tablebase);
+
+        Move result = strategy.computeMove();
+        gameBoard.executeCompleteTurn(result, players[0]);
+
+        int resultOfBlack = tablebase.probe(gameBoard.getPieces(GameBoard.BLACK), gameBoard.getPieces(GameBoard.WHITE));
+        assertTrue(EndgameTablebase.isLoss(resultOfBlack));
+        assertEquals(EndgameTablebase.distance(tablebase.get(3, 3, i)) - 1, EndgameTablebase.distance(resultOfBlack));
+        assertTrue(strategy.getTablebaseHits() > 0);
+    }
+
+    @Test
+    public void computeMoveWithSolutionShouldPlayShortestWinInSetPhaseWithoutSearch() throws InterruptedException, IOException {
+
+        GameBoard gameBoard = new Mill5();
+        EndgameTablebase solution = new TablebaseGenerator(gameBoard).solve(3);
+        Player[] players = createHarderPlayers();
+        players[0].setDifficulty(Options.Difficulties.HARDEST);
+        players[0].setSetCount(1);
+        players[1].setSetCount(1);
+        //the first position with two pieces of each player and one left to set that is won
+        PositionIndex index = solution.index(2, 2, 1, 1);
+        int i = 0;
+        while (!EndgameTablebase.isWin(solution.get(2, 2, 1, 1, i))) {
+            i++;
+        }
+        int white = index.unrankMover(i);
+        gameBoard.setPosition(white, index.unrankOther(i, white), 1, 1, GameBoard.WHITE);
+        Strategy strategy = new Strategy(gameBoard, players[0], new ProgressUpdater(), 1);
+        strategy.setTablebase(solution);
+
+        Move result = strategy.computeMove();
+        gameBoard.executeCompleteTurn(result, players[0]);
+
+        int resultOfBlack = solution.probe(gameBoard.getPieces(GameBoard.BLACK), gameBoard.getPieces(GameBoard.WHITE), 1, 0);
+        assertTrue(EndgameTablebase.isLoss(resultOfBlack));
+        assertEquals(EndgameTablebase.distance(solution.get(2, 2, 1, 1, i)) - 1, EndgameTablebase.distance(resultOfBlack));
+        assertEquals(0, strategy.getReachedDepth());
+        assertEquals(StrategyRunnable.tablebaseEvaluation(solution.get(2, 2, 1, 1, i)), strategy.getResultEvaluation());
+    }
+
+    @Test
+    public void computeMoveWithEndgameTablebaseShouldNotPruneLastSetMoveIntoWin() throws InterruptedException, IOException {
+
+        GameBoard gameBoard = new Mill5();
+        EndgameTablebase solution = new TablebaseGenerator(gameBoard).solve(4);
+        Player[] players = createHarderPlayers();
+        //the last piece of white is set one ply above the leaves, where futility pruning happens
+        players[0].setDifficulty(Options.Difficulties.NORMAL);
+        players[0].setSetCount(2);
+        players[1].setSetCount(1);
+        //the first position with two pieces of white and three of black that is won. The moves that win do not look
+        //better than the other ones until the tablebase is probed after the last piece of white was set
+        PositionIndex index = solution.index(2, 3, 2, 1);
+        int i = 0;
+        while (!EndgameTablebase.isWin(solution.get(2, 3, 2, 1, i))) {
+            i++;
+        }
+        int white = index.unrankMover(i);
+        gameBoard.setPosition(white, index.unrankOther(i, white), 2, 1, GameBoard.WHITE);
+        Strategy strategy = new Strategy(gameBoard, players[0], new ProgressUpdater(), 1);
+        strategy.setTablebase(solution);
+
+        Move result = strategy.computeMove();
+        gameBoard.executeCompleteTurn(result, players[0]);
+
+        int resultOfBlack = solution.probe(gameBoard.getPieces(GameBoard.BLACK), gameBoard.getPieces(GameBoard.WHITE), 1, 1);
+        assertTrue(EndgameTablebase.isLoss(resultOfBlack));
+        assertTrue(strategy.getResultEvaluation() > StrategyRunnable.WON);
+    }
+
+    private Player[] createHarderPlayers() {
+        Player white = new Player(Options.Color.WHITE);
+        Player black = new Player(Options.Color.BLACK);
+        white.setDifficulty(Options.Difficulties.HARDER);
+        black.setDifficulty(Options.Difficulties.HARDER);
+        white.setOtherPlayer(black);
+        black.setOtherPlayer(white);
+        white.setSetCount(9);
+        black.setSetCount(9);
+        return new Player[]{white, black};
+    }
+
 }
@@ -0,0 +1,115 @@
+package com.github.aedge90.nmm;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+
+public class TranspositionTableTest {
+
+    private TranspositionTable mTable;
+    private TranspositionTable.Entry mEntry;
+
+    @Before
+    public void setUp(){
+        mTable = new TranspositionTable(4);
+        mEntry = new TranspositionTable.Entry();
+    }
+
+    @Test
+    public void probe_ShouldReturnStoredEntry(){
+
+        int move = PackedMove.of(3, 5, 20);
+        mTable.store(0x1234567890L, 7, 7, TranspositionTable.LOWER, -12.5, move);
+
+        assertTrue(mTable.probe(0x1234567890L, mEntry));
+        assertEquals(-12.5, mEntry.evaluation);
+        assertEquals(7, mEntry.rootDepth);
+        assertEquals(7, mEntry.depth);
+        assertEquals(TranspositionTable.LOWER, mEntry.bound);
+        assertEquals(move, mEntry.move);
+    }
+
+    @Test
+    public void probe_ShouldNotFindOtherKeyOfSameBucket(){
+
+        mTable.store(0x10L, 7, 3, TranspositionTable.EXACT, 1, TranspositionTable.NO_MOVE);
+
+        assertFalse(mTable.probe(0x20L << 32, mEntry));
+        assertFalse(mTable.probe(0, mEntry));
+    }
+
+    @Test
+    public void probe_ShouldNotFindEntriesAfterClear(){
+
+        mTable.store(0x10L, 7, 3, TranspositionTable.EXACT, 1, TranspositionTable.NO_MOVE);
+        mTable.clear();
+
+        assertFalse(mTable.probe(0x10L, mEntry));
+    }
+
+    @Test
+    public void store_ShouldKeepDeeperEntryOfOtherKey(){
+
+        //all keys are in bucket 0
+        mTable.store(0x100L, 7, 5, TranspositionTable.EXACT, 1, TranspositionTable.NO_MOVE);
+        mTable.store(0x200L, 7, 2, TranspositionTable.EXACT, 2, TranspositionTable.NO_MOVE);
+        mTable.store(0x300L, 7, 1, TranspositionTable.EXACT, 3, TranspositionTable.NO_MOVE);
+
+        assertTrue(mTable.probe(0x100L, mEntry));
+        assertEquals(5, mEntry.depth);
+        //the second entry is always replaced
+        assertFalse(mTable.probe(0x200L, mEntry));
+        assertTrue(mTable.probe(0x300L, mEntry));
+        assertEquals(3.0, mEntry.evaluation);
+
+        mTable.store(0x400L, 7, 6, TranspositionTable.EXACT, 4, TranspositionTable.NO_MOVE);
+        assertTrue(mTable.probe(0x400L, mEntry));
+        assertFalse(mTable.probe(0x100L, mEntry));
+    }
+
+    @Test
+    public void store_ShouldReplaceDeeperEntryOfEarlierIteration(){
+
+        mTable.store(0x100L, 4, 3, TranspositionTable.EXACT, 1, TranspositionTable.NO_MOVE);
+        mTable.store(0x200L, 5, 2, TranspositionTable.EXACT, 2, TranspositionTable.NO_MOVE);
+        mTable.store(0x300L, 5, 1, TranspositionTable.EXACT, 3, TranspositionTable.NO_MOVE);
+
+        assertFalse(mTable.probe(0x100L, mEntry));
+        assertTrue(mTable.probe(0x200L, mEntry));
+        assertEquals(5, mEntry.rootDepth);
+        assertTrue(mTable.probe(0x300L, mEntry));
+    }
+
+    @Test
+    public void store_ShouldReplaceDeeperEntryOfEarlierSearch(){
+
+        mTable.store(0x100L, 7, 5, TranspositionTable.EXACT, 1, TranspositionTable.NO_MOVE);
+        mTable.newSearch();
+
+        //still found until it is replaced
+        assertTrue(mTable.probe(0x100L, mEntry));
+
+        mTable.store(0x200L, 3, 2, TranspositionTable.EXACT, 2, TranspositionTable.NO_MOVE);
+        mTable.store(0x300L, 3, 1, TranspositionTable.EXACT, 3, TranspositionTable.NO_MOVE);
+
+        assertFalse(mTable.probe(0x100L, mEntry));
+        assertTrue(mTable.probe(0x200L, mEntry));
+        assertTrue(mTable.probe(0x300L, mEntry));
+    }
+
+    @Test
+    public void store_ShouldReplaceEntryOfSameKey(){
+
+        mTable.store(0x100L, 7, 5, TranspositionTable.LOWER, 1, TranspositionTable.NO_MOVE);
+        mTable.store(0x100L, 7, 2, TranspositionTable.UPPER, 2, TranspositionTable.NO_MOVE);
+
+        assertTrue(mTable.probe(0x100L, mEntry));
+        assertEquals(2, mEntry.depth);
+        assertEquals(TranspositionTable.UPPER, mEntry.bound);
+    }
+
+}
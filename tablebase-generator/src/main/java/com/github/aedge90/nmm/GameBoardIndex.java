@@ -0,0 +1,127 @@
+package com.github.aedge90.nmm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Numbers all positions of a variant of the gameboard densely from 0 to size - 1, given by the pieces and set counts
+ * of white and black and the player to move, so data about the positions of the whole game can be kept in one file.
+ * The positions are divided into partitions by the player to move, the set counts and the numbers of pieces of both
+ * players, and every partition is numbered by a PositionIndex, optionally a SymmetricPositionIndex.
+ * The player to move has as many pieces left to set as the other one or one more, whoever started. In the moving
+ * phase both players have at least three pieces, as the game is over otherwise.
+ * Ranking only looks up the partition and ranks the position in it, so it never allocates anything.
+ */
+
+final class GameBoardIndex {
+
+    private final int nPoints;
+    private final int nPiecesToSet;
+    //by key, null if there are no such positions
+    private final PositionIndex[] partitions;
+    private final long[] offsets;
+    //the keys of the partitions that exist in the order of their offsets
+    private final int[] keys;
+    final long size;
+
+    GameBoardIndex(GameBoard gameBoard, int nPiecesToSet, boolean symmetric) {
+        GameBoardTopology topology = gameBoard.getTopology();
+        GameBoardSymmetries symmetries = symmetric ? new GameBoardSymmetries(topology) : null;
+        this.nPoints = topology.points.length;
+        this.nPiecesToSet = nPiecesToSet;
+        int n = nPiecesToSet + 1;
+        partitions = new PositionIndex[2 * n * n * n * n];
+        offsets = new long[partitions.length];
+        List<Integer> keys = new ArrayList<>();
+        long size = 0;
+        for (int side = 0; side < 2; side++) {
+            for (int whiteSetCount = 0; whiteSetCount <= nPiecesToSet; whiteSetCount++) {
+                for (int blackSetCount = 0; blackSetCount <= nPiecesToSet; blackSetCount++) {
+                    int moverSetCount = side == GameBoard.WHITE ? whiteSetCount : blackSetCount;
+                    int otherSetCount = side == GameBoard.WHITE ? blackSetCount : whiteSetCount;
+                    if (moverSetCount != otherSetCount && moverSetCount != otherSetCount + 1) {
+                        continue;
+                    }
+                    int minPieces = moverSetCount == 0 && otherSetCount == 0 ? 3 : 0;
+                    for (int nWhite = minPieces; nWhite <= nPiecesToSet - whiteSetCount; nWhite++) {
+                        for (int nBlack = minPieces; nBlack <= nPiecesToSet - blackSetCount && nWhite + nBlack <= nPoints; nBlack++) {
+                            int key = key(nWhite, nBlack, whiteSetCount, blackSetCount, side);
+                            int nMover = side == GameBoard.WHITE ? nWhite : nBlack;
+                            int nOther = side == GameBoard.WHITE ? nBlack : nWhite;
+                            partitions[key] = symmetric ? new SymmetricPositionIndex(symmetries, nMover, nOther) : new PositionIndex(nPoints, nMover, nOther);
+                            offsets[key] = size;
+                            keys.add(key);
+                            size += partitions[key].size;
+                        }
+                    }
+                }
+            }
+        }
+        this.keys = new int[keys.size()];
+        for (int i = 0; i < this.keys.length; i++) {
+            this.keys[i] = keys.get(i);
+        }
+        this.size = size;
+    }
+
+    private int key(int nWhite, int nBlack, int whiteSetCount, int blackSetCount, int sideToMove) {
+        int n = nPiecesToSet + 1;
+        return (((sideToMove * n + whiteSetCount) * n + blackSetCount) * n + nWhite) * n + nBlack;
+    }
+
+    //returns -1 if the position is not part of the index
+    long rank(int whitePieces, int blackPieces, int whiteSetCount, int blackSetCount, int sideToMove) {
+        int nWhite = Integer.bitCount(whitePieces);
+        int nBlack = Integer.bitCount(blackPieces);
+        if (nWhite > nPiecesToSet || nBlack > nPiecesToSet || whiteSetCount > nPiecesToSet || blackSetCount > nPiecesToSet) {
+            return -1;
+        }
+        int key = key(nWhite, nBlack, whiteSetCount, blackSetCount, sideToMove);
+        PositionIndex partition = partitions[key];
+        if (partition == null) {
+            return -1;
+        }
+        if (sideToMove == GameBoard.WHITE) {
+            return offsets[key] + partition.rank(whitePieces, blackPieces);
+        }
+        return offsets[key] + partition.rank(blackPieces, whitePieces);
+    }
+
+    long rank(GameBoardSnapshot snapshot) {
+        return rank(snapshot.getPieces(GameBoard.WHITE), snapshot.getPieces(GameBoard.BLACK),
+                snapshot.getSetCount(GameBoard.WHITE), snapshot.getSetCount(GameBoard.BLACK), snapshot.getSideToMove());
+    }
+
+    //sets gameBoard to the position with the index
+    void unrank(long index, GameBoard gameBoard) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("There is no position " + index);
+        }
+        //the last partition that starts at or before the index
+        int low = 0;
+        int high = keys.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets[keys[middle]] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        int key = keys[low];
+        int n = nPiecesToSet + 1;
+        int side = key / (n * n * n * n);
+        int whiteSetCount = key / (n * n * n) % n;
+        int blackSetCount = key / (n * n) % n;
+        PositionIndex partition = partitions[key];
+        int i = (int) (index - offsets[key]);
+        int mover = partition.unrankMover(i);
+        int other = partition.unrankOther(i, mover);
+        if (side == GameBoard.WHITE) {
+            gameBoard.setPosition(mover, other, whiteSetCount, blackSetCount, side);
+        } else {
+            gameBoard.setPosition(other, mover, whiteSetCount, blackSetCount, side);
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.github.aedge90.nmm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The symmetries of a variant of the gameboard: the permutations of its points that keep which points are neighbors
+ * and which points form mills, so they never change the result of a position. They are found by searching all such
+ * permutations of the topology, which also finds the ones that are no rotation or reflection, like swapping
+ * the inner and the outer square of Mill9. Masks are transformed with one table for every byte of the mask.
+ * For SymmetricPositionIndex, the placements of a number of pieces are divided into classes of symmetric ones.
+ */
+
+final class GameBoardSymmetries {
+
+    final int nPoints;
+    final int nSymmetries;
+    //the point every point is moved to by every symmetry
+    private final int[][] permutations;
+    //the transformed bits of a byte of a mask: at (4 * symmetry + byte) * 256 + value
+    private final int[] transformations;
+    private final Classes[] classes = new Classes[33];
+
+    //the classes of symmetric placements of a number of pieces, by the colex rank of the placement
+    static final class Classes {
+        //the placement of every class with the lowest mask
+        final int[] representatives;
+        final int[] classes;
+        //the symmetry that transforms a placement to the representative of its class
+        final byte[] symmetries;
+
+        private Classes(int[] representatives, int[] classes, byte[] symmetries) {
+            this.representatives = representatives;
+            this.classes = classes;
+            this.symmetries = symmetries;
+        }
+    }
+
+    GameBoardSymmetries(GameBoardTopology topology) {
+        nPoints = topology.points.length;
+        List<int[]> found = new ArrayList<>();
+        int[] order = searchOrder(topology);
+        int[] permutation = new int[nPoints];
+        Arrays.fill(permutation, -1);
+        search(topology, order, 0, permutation, new boolean[nPoints], found);
+        //the identity is found first, as every point is tried to be kept first
+        permutations = found.toArray(new int[found.size()][]);
+        nSymmetries = permutations.length;
+        transformations = new int[nSymmetries * 4 * 256];
+        for (int symmetry = 0; symmetry < nSymmetries; symmetry++) {
+            for (int b = 0; b < 4; b++) {
+                for (int value = 0; value < 256; value++) {
+                    int transformed = 0;
+                    for (int bits = value; bits != 0; bits &= bits - 1) {
+                        int point = 8 * b + Integer.numberOfTrailingZeros(bits);
+                        if (point < nPoints) {
+                            transformed |= 1 << permutations[symmetry][point];
+                        }
+                    }
+                    transformations[(4 * symmetry + b) * 256 + value] = transformed;
+                }
+            }
+        }
+    }
+
+    //the points in the order they are reached from point 0, so every point but the first has a neighbor before it,
+    //to which it has to stay a neighbor
+    private static int[] searchOrder(GameBoardTopology topology) {
+        int n = topology.points.length;
+        int[] order = new int[n];
+        int reached = 0;
+        int mask = 0;
+        for (int start = 0; start < n; start++) {
+            if ((mask & 1 << start) != 0) {
+                continue;
+            }
+            mask |= 1 << start;
+            order[reached++] = start;
+            for (int i = reached - 1; i < reached; i++) {
+                for (int neighbor : topology.neighbors[order[i]]) {
+                    if ((mask & 1 << neighbor) == 0) {
+                        mask |= 1 << neighbor;
+                        order[reached++] = neighbor;
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+    private static void search(GameBoardTopology topology, int[] order, int depth, int[] permutation, boolean[] used, List<int[]> found) {
+        if (depth == order.length) {
+            if (keepsMills(topology, permutation)) {
+                found.add(permutation.clone());
+            }
+            return;
+        }
+        int point = order[depth];
+        for (int candidate = 0; candidate < order.length; candidate++) {
+            //the identity is tried first
+            int image = (point + candidate) % order.length;
+            if (used[image] || !keepsNeighbors(topology, order, depth, permutation, image)) {
+                continue;
+            }
+            permutation[point] = image;
+            used[image] = true;
+            search(topology, order, depth + 1, permutation, used, found);
+            used[image] = false;
+            permutation[point] = -1;
+        }
+    }
+
+    //whether the point at depth can be moved to image, given where the points before it were moved to
+    private static boolean keepsNeighbors(GameBoardTopology topology, int[] order, int depth, int[] permutation, int image) {
+        int point = order[depth];
+        if (topology.neighbors[point].length != topology.neighbors[image].length) {
+            return false;
+        }
+        for (int i = 0; i < depth; i++) {
+            boolean neighbors = (topology.neighborMasks[point] & 1 << order[i]) != 0;
+            if (neighbors != ((topology.neighborMasks[image] & 1 << permutation[order[i]]) != 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean keepsMills(GameBoardTopology topology, int[] permutation) {
+        for (int mill : topology.millMasks) {
+            int transformed = 0;
+            for (int bits = mill; bits != 0; bits &= bits - 1) {
+                transformed |= 1 << permutation[Integer.numberOfTrailingZeros(bits)];
+            }
+            boolean isMill = false;
+            for (int other : topology.millMasks) {
+                isMill |= other == transformed;
+            }
+            if (!isMill) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int transform(int symmetry, int mask) {
+        int base = 4 * 256 * symmetry;
+        return transformations[base + (mask & 0xFF)] | transformations[base + 256 + ((mask >>> 8) & 0xFF)]
+                | transformations[base + 2 * 256 + ((mask >>> 16) & 0xFF)] | transformations[base + 3 * 256 + (mask >>> 24)];
+    }
+
+    //the classes of the placements of nPieces, which are computed when they are needed first
+    synchronized Classes classes(int nPieces) {
+        if (classes[nPieces] == null) {
+            int size = PositionIndex.binomial(nPoints, nPieces);
+            int[] representatives = new int[size];
+            int nClasses = 0;
+            int[] classOf = new int[size];
+            byte[] symmetryOf = new byte[size];
+            //the placements in the order of their colex rank, which is the one of their masks
+            int mask = (1 << nPieces) - 1;
+            for (int rank = 0; rank < size; rank++) {
+                int lowest = mask;
+                int symmetry = 0;
+                for (int s = 1; s < nSymmetries; s++) {
+                    int transformed = transform(s, mask);
+                    if (transformed < lowest) {
+                        lowest = transformed;
+                        symmetry = s;
+                    }
+                }
+                if (lowest == mask) {
+                    representatives[nClasses] = mask;
+                    classOf[rank] = nClasses++;
+                } else {
+                    //the representative has a lower rank, so its class is known already
+                    classOf[rank] = classOf[PositionIndex.colexRank(lowest)];
+                }
+                symmetryOf[rank] = (byte) symmetry;
+                if (mask != 0) {
+                    //the next higher mask with as many bits
+                    int lowestBit = mask & -mask;
+                    int ripple = mask + lowestBit;
+                    mask = (((ripple ^ mask) >>> 2) / lowestBit) | ripple;
+                }
+            }
+            classes[nPieces] = new Classes(Arrays.copyOf(representatives, nClasses), classOf, symmetryOf);
+        }
+        return classes[nPieces];
+    }
+
+}
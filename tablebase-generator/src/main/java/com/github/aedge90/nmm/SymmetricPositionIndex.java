@@ -0,0 +1,34 @@
+package com.github.aedge90.nmm;
+
+/**
+ * Numbers the positions like PositionIndex, but up to the symmetries of the gameboard: only one placement of
+ * the pieces of the player to move out of every class of symmetric ones is numbered, and the other pieces are
+ * transformed along with them. This makes the index up to 16 times smaller, though a position whose placement
+ * is symmetric in itself still has more than one number.
+ */
+
+final class SymmetricPositionIndex extends PositionIndex {
+
+    private final GameBoardSymmetries symmetries;
+    private final GameBoardSymmetries.Classes moverClasses;
+
+    SymmetricPositionIndex(GameBoardSymmetries symmetries, int nMover, int nOther) {
+        super(symmetries.nPoints, nMover, nOther, symmetries.classes(nMover).representatives.length);
+        this.symmetries = symmetries;
+        this.moverClasses = symmetries.classes(nMover);
+    }
+
+    @Override
+    int rank(int moverPieces, int otherPieces) {
+        int moverRank = colexRank(moverPieces);
+        int moverClass = moverClasses.classes[moverRank];
+        otherPieces = symmetries.transform(moverClasses.symmetries[moverRank], otherPieces);
+        return moverClass * nOtherPlacements + rankOther(otherPieces, moverClasses.representatives[moverClass]);
+    }
+
+    @Override
+    int unrankMover(int index) {
+        return moverClasses.representatives[index / nOtherPlacements];
+    }
+
+}
@@ -0,0 +1,694 @@
+package com.github.aedge90.nmm;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Computes the EndgameTablebase of the moving phase of a variant of the gameboard by retrograde analysis.
+ * A move without a kill keeps the numbers of pieces, so the tables of n against m and of m against n pieces are
+ * computed together. Every move with a kill leads to a table with less pieces, which has to be computed before.
+ * First the moves of every position are generated once: the ones with a kill are looked up in the smaller tables,
+ * the others are only counted. Then the results are found in the order of their distance: a position is won
+ * after d moves, if one of its moves leads to a position that is lost after d - 1 moves, and it is lost after d moves
+ * if all of its moves lead to positions that are won, the longest one after d - 1 moves. When a position gets its
+ * result, the positions before it are found by reversing the moves (retrograde moves) instead of searching
+ * all positions again. The positions that never get a result are draws.
+ * Small variants can be solved completely, including the set phase. Every move of it sets a piece, so the tables
+ * of the set phase only lead to ones with less pieces left to set, and are computed in the order of the set counts,
+ * each position only once from the results of its moves.
+ * The tables with the same number of pieces of both players only depend on the ones with less pieces, so they are
+ * computed in parallel, one partition (a pair of tables) per worker.
+ * The bigger tables of Mill9 do not fit into memory. Given a dir, the generator keeps the results and the moves,
+ * wins and losses of every table in files of their own and maps them into memory, so the operating system only
+ * keeps the parts in memory that are used. After every distance the files are written and a checkpoint with the next
+ * one is saved, which is marked as left before the files are changed again. A partition is continued from its
+ * checkpoint when it is run again. If it was left, the generation crashed in the middle of a distance: the results
+ * of that distance are removed again, and the moves, wins and losses of the positions without a result are generated
+ * once more from the results of the distances before, which is as fast as generating the moves at the start.
+ * A partition without a checkpoint was stopped while its moves were generated, which then starts again.
+ * So a generation that was stopped or crashed can be resumed by running it again. The results are renamed to
+ * the files of the EndgameTablebase once a partition is done.
+ * It is run on a computer and is not part of the app, the tables are then copied into the files dir of the app:
+ * TablebaseGenerator dir maxPieces maxPiecesOfBoth [threads] computes the endgame of Mill9 in dir and can be stopped
+ * with Ctrl+C at any time, TablebaseGenerator dir mill5 the solution of Mill5. The app ships that solution packed
+ * with gzip in assets/tablebases, so it has to be generated and packed again whenever the tables change,
+ * which the task packMill5Solution does.
+ */
+
+final class TablebaseGenerator {
+
+    //a position whose loss can not be shown, as one of its moves with a kill leads to a draw
+    private static final int NO_LOSS = 0xFF;
+    //the suffixes of the files of the arrays of a Table
+    private static final String[] WORK_FILES = {"results", "moves", "wins", "losses"};
+
+    private final GameBoard gameBoard;
+    private final GameBoardTopology topology;
+    private final EndgameTablebase tablebase;
+    //where the tables are kept while they are computed, or null to keep them in memory
+    private final File dir;
+    private final int nThreads;
+    //used by the set phase only, the partitions have their own
+    private final Player mover = createMover();
+    private final int[] moves = new int[GameBoard.MAX_MOVES];
+
+    private volatile boolean stopped;
+    private PrintStream progress;
+    private final AtomicLong nPositions = new AtomicLong();
+
+    //one table that is computed: the results of its positions and what is known about the ones without a result so far
+    private static final class Table {
+        final PositionIndex index;
+        final ByteBuffer results;
+        //the number of moves without a kill whose position is not known to be won by the other player
+        final ByteBuffer nMoves;
+        //the result of the shortest win found so far, or 0
+        final ByteBuffer wins;
+        //the distance of the loss if all remaining moves turn out to be won by the other player, or NO_LOSS
+        final ByteBuffer losses;
+
+        Table(PositionIndex index) {
+            this.index = index;
+            results = ByteBuffer.allocate(index.size);
+            nMoves = ByteBuffer.allocate(index.size);
+            wins = ByteBuffer.allocate(index.size);
+            losses = ByteBuffer.allocate(index.size);
+        }
+
+        //the table kept in the files starting with file. They are created filled with zeros if they do not exist
+        Table(PositionIndex index, File file) throws IOException {
+            this.index = index;
+            results = map(workFile(file, WORK_FILES[0]), index.size);
+            nMoves = map(workFile(file, WORK_FILES[1]), index.size);
+            wins = map(workFile(file, WORK_FILES[2]), index.size);
+            losses = map(workFile(file, WORK_FILES[3]), index.size);
+        }
+
+        //writes the changes of the mapped files to the disk
+        void force() {
+            for (ByteBuffer buffer : new ByteBuffer[]{results, nMoves, wins, losses}) {
+                if (buffer instanceof MappedByteBuffer) {
+                    ((MappedByteBuffer) buffer).force();
+                }
+            }
+        }
+    }
+
+    //computes the tables in memory with one thread
+    TablebaseGenerator(GameBoard gameBoard) {
+        this(gameBoard, null, 1);
+    }
+
+    TablebaseGenerator(GameBoard gameBoard, File dir, int nThreads) {
+        this.gameBoard = gameBoard.getCopy();
+        this.topology = gameBoard.getTopology();
+        this.tablebase = new EndgameTablebase(gameBoard);
+        this.dir = dir;
+        this.nThreads = nThreads;
+    }
+
+    //the player to move is always white on the gameboards of the generator
+    private static Player createMover() {
+        Player mover = new Player(Options.Color.WHITE);
+        Player other = new Player(Options.Color.BLACK);
+        mover.setOtherPlayer(other);
+        other.setOtherPlayer(mover);
+        return mover;
+    }
+
+    //prints every checkpoint and partition that is done and how fast it was computed to out
+    void reportTo(PrintStream out) {
+        progress = out;
+    }
+
+    //lets generate return after the current distance of every partition, whose checkpoints are then saved
+    void stop() {
+        stopped = true;
+    }
+
+    //computes the tables of all numbers of pieces from 3 up to maxPieces for both players, but at most maxPiecesOfBoth
+    //together, starting with the ones with the least pieces. The tables that are already in dir are only loaded
+    EndgameTablebase generate(int maxPieces, int maxPiecesOfBoth) throws IOException {
+        long start = System.currentTimeMillis();
+        if (dir != null) {
+            EndgameTablebase.createDir(dir);
+        }
+        //with one thread the partitions are computed by the calling one, e.g. with its priority
+        ExecutorService workers = nThreads > 1 ? Executors.newFixedThreadPool(nThreads) : null;
+        try {
+            for (int nPieces = 6; nPieces <= maxPiecesOfBoth && !stopped; nPieces++) {
+                List<Future<Void>> partitions = new ArrayList<>();
+                for (int nMover = 3; nMover <= maxPieces; nMover++) {
+                    int nOther = nPieces - nMover;
+                    if (nOther >= nMover && nOther <= maxPieces && nPieces <= topology.points.length) {
+                        if (workers == null) {
+                            new Partition(nMover, nOther).call();
+                        } else {
+                            partitions.add(workers.submit(new Partition(nMover, nOther)));
+                        }
+                    }
+                }
+                for (Future<Void> partition : partitions) {
+                    await(partition);
+                }
+            }
+        } finally {
+            if (workers != null) {
+                //partitions that are still running after an error stop at their next checkpoint
+                workers.shutdown();
+            }
+        }
+        if (progress != null) {
+            long time = System.currentTimeMillis() - start;
+            progress.println(String.format(Locale.US, "%s after %d s, %d positions, %.0f positions/s",
+                    stopped ? "stopped" : "done", time / 1000, nPositions.get(), nPositions.get() * 1000.0 / Math.max(1, time)));
+        }
+        return tablebase;
+    }
+
+    private void await(Future<Void> partition) throws IOException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    partition.get();
+                    return;
+                } catch (InterruptedException e) {
+                    //the partition still has to save its checkpoint
+                    stop();
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            stop();
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    //computes the tables of all positions of the game, in which both players start with nPiecesToSet pieces
+    EndgameTablebase solve(int nPiecesToSet) throws IOException {
+        generate(nPiecesToSet, 2 * nPiecesToSet);
+        for (int nSetCounts = 1; nSetCounts <= 2 * nPiecesToSet; nSetCounts++) {
+            //the player to move has set as many pieces as the other one if he started, otherwise one less
+            int otherSetCount = nSetCounts / 2;
+            int moverSetCount = nSetCounts - otherSetCount;
+            for (int nMover = 0; nMover <= nPiecesToSet - moverSetCount; nMover++) {
+                for (int nOther = 0; nOther <= nPiecesToSet - otherSetCount && nMover + nOther <= topology.points.length; nOther++) {
+                    generateSetPhase(nMover, nOther, moverSetCount, otherSetCount);
+                }
+            }
+        }
+        return tablebase;
+    }
+
+    private void generateSetPhase(int nMover, int nOther, int moverSetCount, int otherSetCount) {
+        PositionIndex index = new PositionIndex(topology.points.length, nMover, nOther);
+        byte[] results = new byte[index.size];
+        mover.setSetCount(moverSetCount);
+        for (int i = 0; i < index.size; i++) {
+            int moverPieces = index.unrankMover(i);
+            int otherPieces = index.unrankOther(i, moverPieces);
+            gameBoard.setPosition(moverPieces, otherPieces, moverSetCount, otherSetCount, GameBoard.WHITE);
+            int n = gameBoard.possibleMoves(mover, moves);
+            int win = Integer.MAX_VALUE;
+            int loss = 0;
+            boolean draw = false;
+            for (int j = 0; j < n; j++) {
+                int result = tablebase.probeMove(moverPieces, otherPieces, moverSetCount, otherSetCount, moves[j]);
+                if (result == EndgameTablebase.UNKNOWN) {
+                    throw new IllegalStateException("The tables of the moving phase up to " + (nMover + 1) + " against "
+                            + nOther + " pieces have to be computed first");
+                }
+                if (EndgameTablebase.isLoss(result)) {
+                    win = Math.min(win, EndgameTablebase.distance(result) + 1);
+                } else if (result == EndgameTablebase.DRAW) {
+                    draw = true;
+                } else {
+                    loss = Math.max(loss, EndgameTablebase.distance(result) + 1);
+                }
+            }
+            if (win != Integer.MAX_VALUE) {
+                results[i] = (byte) EndgameTablebase.result(true, win);
+            } else if (!draw) {
+                results[i] = (byte) EndgameTablebase.result(false, loss);
+            }
+        }
+        mover.setSetCount(0);
+        tablebase.put(nMover, nOther, moverSetCount, otherSetCount, ByteBuffer.wrap(results));
+    }
+
+    //computes the tables of nMover against nOther pieces and of nOther against nMover pieces.
+    //The ones with one piece less for either player must be computed already
+    private final class Partition implements Callable<Void> {
+
+        private final int nMover;
+        private final int nOther;
+        private final GameBoard gameBoard = TablebaseGenerator.this.gameBoard.getCopy();
+        private final Player mover = createMover();
+        private final int[] moves = new int[GameBoard.MAX_MOVES];
+        private Table[] tables;
+        //the latest distance of a result that is still waiting to be set
+        private int lastDistance;
+
+        Partition(int nMover, int nOther) {
+            this.nMover = nMover;
+            this.nOther = nOther;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            long start = System.currentTimeMillis();
+            if (dir != null && isDone()) {
+                for (int i = 0; i < nTables(); i++) {
+                    tablebase.put(nMover(i), nOther(i), EndgameTablebase.map(tablebase.file(dir, nMover(i), nOther(i))));
+                }
+                return null;
+            }
+            int distance = 0;
+            if (dir != null && canResume()) {
+                boolean left;
+                DataInputStream in = new DataInputStream(new FileInputStream(checkpointFile()));
+                try {
+                    distance = in.readInt();
+                    lastDistance = in.readInt();
+                    left = in.readBoolean();
+                } finally {
+                    in.close();
+                }
+                createTables();
+                if (left) {
+                    //the files were changed in place after the checkpoint, only the results before it are still valid
+                    clearResults(distance);
+                    lastDistance = 0;
+                    generateMoves(distance);
+                    if (stopped) {
+                        return null;
+                    }
+                    saveCheckpoint(distance, false);
+                    report("moves generated again from distance " + distance, start);
+                }
+            } else {
+                deleteFiles();
+                createTables();
+                generateMoves(0);
+                if (stopped) {
+                    //there is no checkpoint yet, the partition starts again when it is resumed
+                    return null;
+                }
+                saveCheckpoint(distance, false);
+                report("moves generated", start);
+            }
+            for (; distance <= lastDistance; distance++) {
+                if (stopped) {
+                    return null;
+                }
+                long iterationStart = System.currentTimeMillis();
+                if (distance > EndgameTablebase.MAX_DISTANCE) {
+                    throw new IllegalStateException("A result of " + nMover + " against " + nOther + " pieces is more than "
+                            + EndgameTablebase.MAX_DISTANCE + " moves away");
+                }
+                //the files are changed in place, so they are only valid at the checkpoints
+                saveCheckpoint(distance, true);
+                //the moves of the positions of one table lead to the positions of the other one
+                for (int i = 0; i < tables.length; i++) {
+                    setResults(tables[i], tables[tables.length - 1 - i], distance);
+                }
+                saveCheckpoint(distance + 1, false);
+                report("distance " + distance + " of at least " + lastDistance, iterationStart);
+            }
+            finish();
+            nPositions.addAndGet(size());
+            report("done, " + size() + " positions, " + lastDistance + " moves at most, "
+                    + (System.currentTimeMillis() - start) / 1000 + " s", start);
+            return null;
+        }
+
+        //prints what was done since start and how many positions of the partition were passed per second
+        private void report(String done, long start) {
+            if (progress != null) {
+                long time = System.currentTimeMillis() - start;
+                progress.println(String.format(Locale.US, "%d against %d pieces: %s, %.0f positions/s",
+                        nMover, nOther, done, size() * 1000.0 / Math.max(1, time)));
+            }
+        }
+
+        private long size() {
+            long size = 0;
+            for (Table table : tables) {
+                size += table.index.size;
+            }
+            return size;
+        }
+
+        private int nTables() {
+            return nMover == nOther ? 1 : 2;
+        }
+
+        private int nMover(int table) {
+            return table == 0 ? nMover : nOther;
+        }
+
+        private int nOther(int table) {
+            return table == 0 ? nOther : nMover;
+        }
+
+        private void createTables() throws IOException {
+            tables = new Table[nTables()];
+            for (int i = 0; i < tables.length; i++) {
+                PositionIndex index = new PositionIndex(topology.points.length, nMover(i), nOther(i));
+                if (dir == null) {
+                    tables[i] = new Table(index);
+                } else {
+                    tables[i] = new Table(index, tablebase.file(dir, nMover(i), nOther(i)));
+                }
+            }
+        }
+
+        private boolean isDone() {
+            for (int i = 0; i < nTables(); i++) {
+                if (!tablebase.file(dir, nMover(i), nOther(i)).isFile()) {
+                    return false;
+                }
+            }
+            return !checkpointFile().exists();
+        }
+
+        private boolean canResume() {
+            if (!checkpointFile().isFile()) {
+                return false;
+            }
+            for (int i = 0; i < nTables(); i++) {
+                File file = tablebase.file(dir, nMover(i), nOther(i));
+                for (String suffix : WORK_FILES) {
+                    if (!workFile(file, suffix).isFile()) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private File checkpointFile() {
+            return workFile(tablebase.file(dir, nMover, nOther), "checkpoint");
+        }
+
+        //left marks the checkpoint as the last one before the files are changed again
+        private void saveCheckpoint(int distance, boolean left) throws IOException {
+            if (dir == null) {
+                return;
+            }
+            if (!left) {
+                for (Table table : tables) {
+                    table.force();
+                }
+            }
+            File tmp = workFile(checkpointFile(), "tmp");
+            DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp));
+            try {
+                out.writeInt(distance);
+                out.writeInt(lastDistance);
+                out.writeBoolean(left);
+            } finally {
+                out.close();
+            }
+            rename(tmp, checkpointFile());
+        }
+
+        private void deleteCheckpoint() throws IOException {
+            if (dir != null) {
+                delete(checkpointFile());
+            }
+        }
+
+        //the files of a partition that was not done before its checkpoint was saved for the first time
+        private void deleteFiles() throws IOException {
+            if (dir == null) {
+                return;
+            }
+            for (int i = 0; i < nTables(); i++) {
+                File file = tablebase.file(dir, nMover(i), nOther(i));
+                for (String suffix : WORK_FILES) {
+                    delete(workFile(file, suffix));
+                }
+                delete(file);
+            }
+        }
+
+        private void finish() throws IOException {
+            for (int i = 0; i < tables.length; i++) {
+                Table table = tables[i];
+                tablebase.put(nMover(i), nOther(i), table.results);
+                if (dir != null) {
+                    //the mapping of the results stays valid after the rename
+                    File file = tablebase.file(dir, nMover(i), nOther(i));
+                    rename(workFile(file, WORK_FILES[0]), file);
+                    for (String suffix : WORK_FILES) {
+                        delete(workFile(file, suffix));
+                    }
+                }
+            }
+            //the partition is done once all of its results are renamed
+            deleteCheckpoint();
+        }
+
+        //removes the results of distance and later ones of all tables
+        private void clearResults(int distance) {
+            for (Table table : tables) {
+                for (int i = 0; i < table.index.size; i++) {
+                    int result = table.results.get(i) & 0xFF;
+                    if (result != 0 && EndgameTablebase.distance(result) >= distance) {
+                        table.results.put(i, (byte) 0);
+                    }
+                }
+            }
+        }
+
+        //generates the moves, wins and losses of the positions without a result as they are before the distance first
+        private void generateMoves(int first) {
+            //the moves of the positions of one table lead to the positions of the other one
+            for (int i = 0; i < tables.length; i++) {
+                generateMoves(tables[i], tables[tables.length - 1 - i], first);
+            }
+        }
+
+        private void generateMoves(Table table, Table next, int first) {
+            PositionIndex index = table.index;
+            for (int i = 0; i < index.size && !stopped; i++) {
+                if (table.results.get(i) != 0) {
+                    continue;
+                }
+                int moverPieces = index.unrankMover(i);
+                int otherPieces = index.unrankOther(i, moverPieces);
+                gameBoard.setPosition(moverPieces, otherPieces, 0, 0, GameBoard.WHITE);
+                int n = gameBoard.possibleMoves(mover, moves);
+                int nMoves = 0;
+                int win = 0;
+                int loss = 0;
+                for (int j = 0; j < n; j++) {
+                    int move = moves[j];
+                    int kill = PackedMove.kill(move);
+                    int result;
+                    if (kill == PackedMove.NONE) {
+                        //the results of the distances before first were passed to this position by retrograde moves,
+                        //the moves to positions that are won by the other player are not counted anymore
+                        result = 0;
+                        if (first > 0) {
+                            int nextOther = (moverPieces & ~(1 << PackedMove.src(move))) | (1 << PackedMove.dest(move));
+                            result = next.results.get(next.index.rank(otherPieces, nextOther)) & 0xFF;
+                            if (result != 0 && EndgameTablebase.distance(result) >= first) {
+                                result = 0;
+                            }
+                        }
+                        if (result == 0 || EndgameTablebase.isLoss(result)) {
+                            nMoves++;
+                        }
+                        if (result == 0) {
+                            continue;
+                        }
+                    } else if (index.nOther == 3) {
+                        //the other player has only two pieces left
+                        result = EndgameTablebase.result(false, 0);
+                    } else {
+                        int nextMover = otherPieces & ~(1 << kill);
+                        int nextOther = (moverPieces & ~(1 << PackedMove.src(move))) | (1 << PackedMove.dest(move));
+                        result = tablebase.probe(nextMover, nextOther);
+                        if (result == EndgameTablebase.UNKNOWN) {
+                            throw new IllegalStateException("The table of " + (index.nOther - 1) + " against " + index.nMover
+                                    + " pieces has to be computed first");
+                        }
+                    }
+                    if (result == EndgameTablebase.DRAW) {
+                        loss = NO_LOSS;
+                    } else if (EndgameTablebase.isLoss(result)) {
+                        int distance = EndgameTablebase.distance(result) + 1;
+                        if (win == 0 || distance < EndgameTablebase.distance(win)) {
+                            win = EndgameTablebase.result(true, distance);
+                        }
+                    } else if (loss != NO_LOSS) {
+                        loss = Math.max(loss, EndgameTablebase.distance(result) + 1);
+                    }
+                }
+                table.nMoves.put(i, (byte) nMoves);
+                table.wins.put(i, (byte) win);
+                table.losses.put(i, (byte) loss);
+                if (win != 0) {
+                    lastDistance = Math.max(lastDistance, EndgameTablebase.distance(win));
+                } else if (nMoves == 0 && loss != NO_LOSS) {
+                    lastDistance = Math.max(lastDistance, loss);
+                }
+            }
+        }
+
+        //sets the result of all positions of table that are won or lost after distance moves
+        private void setResults(Table table, Table previous, int distance) {
+            for (int i = 0; i < table.index.size; i++) {
+                if (table.results.get(i) != 0) {
+                    continue;
+                }
+                int win = table.wins.get(i) & 0xFF;
+                if (win != 0 && EndgameTablebase.distance(win) == distance) {
+                    table.results.put(i, (byte) win);
+                    unmove(table, previous, i, true, distance);
+                } else if (win == 0 && table.nMoves.get(i) == 0 && (table.losses.get(i) & 0xFF) == distance) {
+                    table.results.put(i, (byte) EndgameTablebase.result(false, distance));
+                    unmove(table, previous, i, false, distance);
+                }
+            }
+        }
+
+        //passes the result of the position i of table to all positions of previous, from which it can be reached
+        //by a move without a kill
+        private void unmove(Table table, Table previous, int i, boolean win, int distance) {
+            int moverPieces = table.index.unrankMover(i);
+            int otherPieces = table.index.unrankOther(i, moverPieces);
+            int empty = topology.allPointsMask & ~(moverPieces | otherPieces);
+            boolean jump = table.index.nOther == 3;
+            for (int pieces = otherPieces; pieces != 0; pieces &= pieces - 1) {
+                int dest = Integer.numberOfTrailingZeros(pieces);
+                if (closedMill(dest, otherPieces)) {
+                    //the move to dest had to kill
+                    continue;
+                }
+                int sources = jump ? empty : topology.neighborMasks[dest] & empty;
+                for (; sources != 0; sources &= sources - 1) {
+                    int src = Integer.numberOfTrailingZeros(sources);
+                    int j = previous.index.rank((otherPieces & ~(1 << dest)) | (1 << src), moverPieces);
+                    if (previous.results.get(j) != 0) {
+                        continue;
+                    }
+                    if (!win) {
+                        //the first loss found is the shortest one, as they are found in the order of their distance,
+                        //but a win by a kill from generateMoves may still be a longer one
+                        int known = previous.wins.get(j) & 0xFF;
+                        if (known == 0 || distance + 1 < EndgameTablebase.distance(known)) {
+                            previous.wins.put(j, (byte) EndgameTablebase.result(true, distance + 1));
+                            lastDistance = Math.max(lastDistance, distance + 1);
+                        }
+                    } else {
+                        int nMoves = previous.nMoves.get(j) - 1;
+                        previous.nMoves.put(j, (byte) nMoves);
+                        int loss = previous.losses.get(j) & 0xFF;
+                        if (nMoves == 0 && loss != NO_LOSS) {
+                            loss = Math.max(loss, distance + 1);
+                            previous.losses.put(j, (byte) loss);
+                            lastDistance = Math.max(lastDistance, loss);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean closedMill(int point, int pieces) {
+        for (int mill : topology.millsOfPoint[point]) {
+            if ((topology.millMasks[mill] & pieces) == topology.millMasks[mill]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //the files of a table while it is computed
+    private static File workFile(File file, String suffix) {
+        return new File(file.getParentFile(), file.getName() + "." + suffix);
+    }
+
+    private static MappedByteBuffer map(File file, int size) throws IOException {
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            //a new file is filled with zeros
+            return out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void rename(File from, File to) throws IOException {
+        delete(to);
+        if (!from.renameTo(to)) {
+            throw new IOException("Could not rename " + from + " to " + to);
+        }
+    }
+
+    private static void delete(File file) throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not delete " + file);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long start = System.currentTimeMillis();
+        if (args.length == 2 && args[1].equals("mill5")) {
+            new TablebaseGenerator(new Mill5()).solve(5).writeSolution(new File(args[0]));
+            System.out.println("done after " + (System.currentTimeMillis() - start) / 1000 + " s");
+        } else if (args.length == 3 || args.length == 4) {
+            int nThreads = args.length == 4 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            final TablebaseGenerator generator = new TablebaseGenerator(new Mill9(), new File(args[0]), nThreads);
+            generator.reportTo(System.out);
+            //Ctrl+C waits for the checkpoints, so the generation can be resumed by running it again
+            final Thread main = Thread.currentThread();
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    generator.stop();
+                    try {
+                        main.join();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            generator.generate(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        } else {
+            System.out.println("usage: TablebaseGenerator dir maxPieces maxPiecesOfBoth [threads], or TablebaseGenerator dir mill5");
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.github.aedge90.nmm;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class GameBoardIndexTest {
+
+    @Test
+    public void symmetries_ShouldKeepNeighborsAndMills() {
+
+        GameBoardTopology topology = new Mill9().getTopology();
+        GameBoardSymmetries symmetries = new GameBoardSymmetries(topology);
+
+        //four rotations, each of them mirrored and with the inner and outer square swapped
+        assertEquals(16, symmetries.nSymmetries);
+        for (int s = 0; s < symmetries.nSymmetries; s++) {
+            for (int point = 0; point < topology.points.length; point++) {
+                int image = Integer.numberOfTrailingZeros(symmetries.transform(s, 1 << point));
+                assertEquals(topology.neighborMasks[image], symmetries.transform(s, topology.neighborMasks[point]));
+            }
+            for (int mill : topology.millMasks) {
+                boolean isMill = false;
+                for (int other : topology.millMasks) {
+                    isMill |= other == symmetries.transform(s, mill);
+                }
+                assertTrue(isMill);
+            }
+        }
+        assertEquals(0x1234, symmetries.transform(0, 0x1234));
+    }
+
+    @Test
+    public void rank_ShouldNumberSymmetricPositionsAsOneOfThem() {
+
+        GameBoardSymmetries symmetries = new GameBoardSymmetries(new Mill5().getTopology());
+        PositionIndex index = new SymmetricPositionIndex(symmetries, 3, 4);
+        PositionIndex all = new PositionIndex(16, 3, 4);
+        assertTrue(index.size < all.size / 10);
+
+        for (int i = 0; i < index.size; i++) {
+            int mover = index.unrankMover(i);
+            assertEquals(i, index.rank(mover, index.unrankOther(i, mover)));
+        }
+        for (int i = 0; i < all.size; i++) {
+            int mover = all.unrankMover(i);
+            int other = all.unrankOther(i, mover);
+            for (int s = 0; s < symmetries.nSymmetries; s++) {
+                int rank = index.rank(symmetries.transform(s, mover), symmetries.transform(s, other));
+                assertTrue(isSymmetric(symmetries, mover, other, index.unrankMover(rank), index.unrankOther(rank, index.unrankMover(rank))));
+            }
+        }
+    }
+
+    @Test
+    public void rank_ShouldReturnIndexOfUnrankedPosition() {
+
+        for (boolean symmetric : new boolean[]{false, true}) {
+            GameBoard gameBoard = new Mill5();
+            GameBoardIndex index = new GameBoardIndex(gameBoard, 3, symmetric);
+            for (long i = 0; i < index.size; i++) {
+                index.unrank(i, gameBoard);
+                long rank = index.rank(gameBoard.getPieces(GameBoard.WHITE), gameBoard.getPieces(GameBoard.BLACK),
+                        gameBoard.getSetCount(GameBoard.WHITE), gameBoard.getSetCount(GameBoard.BLACK),
+                        GameBoard.colorIndex(gameBoard.getSideToMove()));
+                assertEquals(i, rank);
+            }
+        }
+    }
+
+    @Test
+    public void rank_ShouldReturnMinusOneForPositionsOutsideOfIndex() {
+
+        GameBoardIndex index = new GameBoardIndex(new Mill5(), 3, false);
+
+        //white can not have set more pieces than black if it is his turn
+        assertEquals(-1, index.rank(0x7, 0x70, 0, 1, GameBoard.WHITE));
+        //the game is over in the moving phase with less than three pieces
+        assertEquals(-1, index.rank(0x3, 0x70, 0, 0, GameBoard.WHITE));
+        assertEquals(-1, index.rank(0xF, 0x70, 0, 0, GameBoard.BLACK));
+        assertTrue(index.rank(0x7, 0x70, 0, 0, GameBoard.BLACK) >= 0);
+    }
+
+    private boolean isSymmetric(GameBoardSymmetries symmetries, int mover, int other, int symmetricMover, int symmetricOther) {
+        for (int s = 0; s < symmetries.nSymmetries; s++) {
+            if (symmetries.transform(s, mover) == symmetricMover && symmetries.transform(s, other) == symmetricOther) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}